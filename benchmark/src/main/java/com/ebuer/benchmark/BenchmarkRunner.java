@@ -0,0 +1,50 @@
+package com.ebuer.benchmark;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测入口 跑两轮：吞吐量(ops/s) 和 采样延迟(us/op 含p50/p99) 都带gc profiler统计分配速率
+ * 命令行指定了-bm时只按指定的模式跑一轮 -tu同理以命令行为准
+ * java -jar target/benchmarks.jar [jmh参数 比如 HbaseClientBenchmark.getRow -t 4]
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+
+        if (!commandLine.getBenchModes().isEmpty()) {
+            new Runner(options(commandLine, null, null)).run();
+            return;
+        }
+        new Runner(options(commandLine, Mode.Throughput, TimeUnit.SECONDS)).run();
+        new Runner(options(commandLine, Mode.SampleTime, TimeUnit.MICROSECONDS)).run();
+    }
+
+    /**
+     * @param mode     为null时用命令行的-bm
+     * @param timeUnit 命令行指定了-tu或者为null时用命令行的
+     */
+    private static Options options(CommandLineOptions commandLine, Mode mode, TimeUnit timeUnit) {
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class);
+        if (mode != null) {
+            builder.mode(mode);
+        }
+        if (timeUnit != null && !commandLine.getTimeUnit().hasValue()) {
+            builder.timeUnit(timeUnit);
+        }
+        if (commandLine.getIncludes().isEmpty()) {
+            builder.include(BenchmarkRunner.class.getPackage().getName() + ".*");
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,122 @@
+package com.ebuer.benchmark;
+
+import com.ebuer.hbase.HbaseClient;
+import com.ebuer.hbase.RowVisitor;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * HbaseClient读写热点路径的压测 表在mini cluster上预先写入ROWS行
+ */
+@State(Scope.Benchmark)
+public class HbaseClientBenchmark {
+
+    private static final String TABLE = "bench_user";
+
+    private static final byte[] FAMILY = Bytes.toBytes("base_info");
+
+    private static final byte[] QUALIFIER = Bytes.toBytes("name");
+
+    private static final byte[] VALUE = Bytes.toBytes("xuyang_0123456789_0123456789");
+
+    private static final int ROWS = 100000;
+
+    /**
+     * putRows/getRows每批的行数
+     */
+    @Param({"100"})
+    private int batchSize;
+
+    /**
+     * 每次scan的行数
+     */
+    @Param({"1000"})
+    private int scanRows;
+
+    private HbaseClient hbaseClient;
+
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        MiniCluster.start();
+        hbaseClient = new HbaseClient(MiniCluster.hbaseConf());
+        if (!hbaseClient.existsTable(TABLE)) {
+            hbaseClient.createTable(TABLE, "base_info");
+        }
+
+        List<Put> puts = new ArrayList<Put>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            puts.add(put(i));
+        }
+        hbaseClient.putRows(TABLE, puts);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        hbaseClient.close();
+    }
+
+    @Benchmark
+    public boolean putRow() {
+        return hbaseClient.putRow(TABLE, put(randomRow()));
+    }
+
+    @Benchmark
+    public boolean putRows() {
+        List<Put> puts = new ArrayList<Put>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            puts.add(put(randomRow()));
+        }
+        return hbaseClient.putRows(TABLE, puts);
+    }
+
+    @Benchmark
+    public Result getRow() {
+        return hbaseClient.getRow(TABLE, new Get(rowKey(randomRow())));
+    }
+
+    @Benchmark
+    public Result[] getRows() {
+        List<Get> gets = new ArrayList<Get>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            gets.add(new Get(rowKey(randomRow())));
+        }
+        return hbaseClient.getRows(TABLE, gets);
+    }
+
+    @Benchmark
+    public long scan(final Blackhole blackhole) {
+        int start = ThreadLocalRandom.current().nextInt(ROWS - scanRows);
+        Scan scan = new Scan(rowKey(start), rowKey(start + scanRows));
+        return hbaseClient.scan(TABLE, scan, new RowVisitor() {
+            public boolean visit(Result result) {
+                blackhole.consume(result);
+                return true;
+            }
+        });
+    }
+
+    private static int randomRow() {
+        return ThreadLocalRandom.current().nextInt(ROWS);
+    }
+
+    private static byte[] rowKey(int i) {
+        return Bytes.toBytes(String.format("rk_%08d", i));
+    }
+
+    private static Put put(int i) {
+        Put put = new Put(rowKey(i));
+        put.addColumn(FAMILY, QUALIFIER, VALUE);
+        return put;
+    }
+}
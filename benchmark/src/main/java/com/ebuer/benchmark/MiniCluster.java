@@ -0,0 +1,49 @@
+package com.ebuer.benchmark;
+
+import com.ebuer.conf.HbaseConf;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.util.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 进程内的hbase mini cluster 每个jmh fork启动一次 进程退出时关闭
+ * phoenix-core在classpath上 regionserver会加载phoenix的coprocessor 可以直接用jdbc:phoenix连接
+ */
+final class MiniCluster {
+
+    private static HBaseTestingUtility utility;
+
+    private MiniCluster() {
+    }
+
+    static synchronized HBaseTestingUtility start() throws Exception {
+        if (utility == null) {
+            final HBaseTestingUtility testingUtility = new HBaseTestingUtility();
+            testingUtility.startMiniCluster(1);
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        testingUtility.shutdownMiniCluster();
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            }, "mini-cluster-shutdown"));
+            utility = testingUtility;
+        }
+        return utility;
+    }
+
+    static int zkPort() throws Exception {
+        return start().getZkCluster().getClientPort();
+    }
+
+    static HbaseConf hbaseConf() throws Exception {
+        List<Pair<String, String>> keyValues = new ArrayList<Pair<String, String>>(2);
+        keyValues.add(new Pair<String, String>("hbase.zookeeper.quorum", "localhost"));
+        keyValues.add(new Pair<String, String>("hbase.zookeeper.property.clientPort", String.valueOf(zkPort())));
+        return new HbaseConf(keyValues);
+    }
+}
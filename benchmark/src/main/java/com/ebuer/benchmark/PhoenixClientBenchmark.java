@@ -0,0 +1,72 @@
+package com.ebuer.benchmark;
+
+import com.ebuer.hbase.BatchReport;
+import com.ebuer.hbase.PhoenixClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * PhoenixClient查询和批量写的压测 phoenix直接跑在mini cluster上
+ */
+@State(Scope.Benchmark)
+public class PhoenixClientBenchmark {
+
+    private static final int ROWS = 10000;
+
+    /**
+     * execBatchSql每批的sql条数
+     */
+    @Param({"100"})
+    private int batchSize;
+
+    /**
+     * execQuerySql每次查询的行数
+     */
+    @Param({"100"})
+    private int queryRows;
+
+    private PhoenixClient phoenixClient;
+
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        phoenixClient = new PhoenixClient();
+        phoenixClient.setHost("localhost");
+        phoenixClient.setPort(MiniCluster.zkPort());
+        phoenixClient.execSql("create table if not exists BENCH_USER (ID varchar primary key, NAME varchar, AGE integer)");
+
+        List<Object[]> params = new ArrayList<Object[]>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            params.add(new Object[]{rowKey(i), "xuyang_" + i, i % 100});
+        }
+        phoenixClient.executeBatch("upsert into BENCH_USER values(?,?,?)", params);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        phoenixClient.close();
+    }
+
+    @Benchmark
+    public String execQuerySql() {
+        String start = rowKey(ThreadLocalRandom.current().nextInt(ROWS - queryRows));
+        return phoenixClient.execQuerySql("select * from BENCH_USER where ID >= '" + start + "' limit " + queryRows);
+    }
+
+    @Benchmark
+    public BatchReport execBatchSql() {
+        List<String> sqlList = new ArrayList<String>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            int row = ThreadLocalRandom.current().nextInt(ROWS);
+            sqlList.add("upsert into BENCH_USER values('" + rowKey(row) + "','xuyang_" + row + "'," + (row % 100) + ")");
+        }
+        return phoenixClient.execBatchSql(sqlList);
+    }
+
+    private static String rowKey(int i) {
+        return String.format("rk_%08d", i);
+    }
+}
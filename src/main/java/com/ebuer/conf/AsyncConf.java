@@ -0,0 +1,84 @@
+package com.ebuer.conf;
+
+/**
+ * 异步客户端的线程池和超时配置
+ */
+public class AsyncConf {
+
+    /**
+     * 核心线程数
+     */
+    private int corePoolSize = 8;
+
+    /**
+     * 最大线程数
+     */
+    private int maxPoolSize = 32;
+
+    /**
+     * 等待队列长度 队列满了之后的请求直接失败(RejectedExecutionException) 不会阻塞调用方
+     */
+    private int queueCapacity = 1024;
+
+    /**
+     * 非核心线程空闲多久回收
+     */
+    private long keepAliveMillis = 60000;
+
+    /**
+     * 默认超时时间 <=0表示不超时 超时后future以TimeoutException结束 执行中的请求不中断
+     * 执行中的请求靠hbase.rpc.timeout/hbase.client.operation.timeout结束 建议配置成不大于这个值
+     */
+    private long timeoutMillis = 5000;
+
+
+    public AsyncConf() {
+    }
+
+    public AsyncConf(int corePoolSize, int maxPoolSize, int queueCapacity, long timeoutMillis) {
+        this.corePoolSize = corePoolSize;
+        this.maxPoolSize = maxPoolSize;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public int getCorePoolSize() {
+        return corePoolSize;
+    }
+
+    public void setCorePoolSize(int corePoolSize) {
+        this.corePoolSize = corePoolSize;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    public void setKeepAliveMillis(long keepAliveMillis) {
+        this.keepAliveMillis = keepAliveMillis;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+}
@@ -0,0 +1,69 @@
+package com.ebuer.conf;
+
+/**
+ * 每个表一个熔断器的配置 在HbaseClient第一次访问表之前设置 默认关闭
+ */
+public class CircuitBreakerConf {
+
+    private boolean enabled = false;
+
+    /**
+     * 连续失败多少次后打开 打开后对这个表的调用直接失败
+     */
+    private int failureThreshold = 20;
+
+    /**
+     * 打开多久之后进入半开 放少量请求试探
+     */
+    private long openMillis = 5000;
+
+    /**
+     * 半开时同时放行的试探请求数 试探成功则关闭 失败则重新打开
+     */
+    private int halfOpenMaxCalls = 1;
+
+
+    public CircuitBreakerConf() {
+    }
+
+    /**
+     * 按阈值开启熔断
+     */
+    public CircuitBreakerConf(int failureThreshold, long openMillis) {
+        this.enabled = true;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    public void setOpenMillis(long openMillis) {
+        this.openMillis = openMillis;
+    }
+
+    public int getHalfOpenMaxCalls() {
+        return halfOpenMaxCalls;
+    }
+
+    public void setHalfOpenMaxCalls(int halfOpenMaxCalls) {
+        this.halfOpenMaxCalls = halfOpenMaxCalls;
+    }
+}
@@ -0,0 +1,70 @@
+package com.ebuer.conf;
+
+/**
+ * 单行get合并成批量get的配置
+ */
+public class GetBatchConf {
+
+    /**
+     * 合并窗口 同一张表第一个get到达之后最多等这么久就发出去 单位微秒
+     */
+    private long windowMicros = 500;
+
+    /**
+     * 一批最多多少个get 攒满了立即发出去 不等窗口结束
+     */
+    private int maxBatchSize = 64;
+
+    /**
+     * 窗口到期后执行批量get的线程数 一个线程同时只执行一批
+     * 封批的定时线程只有一个 只负责把到期的批次交给这些线程
+     */
+    private int flushThreads = 4;
+
+    /**
+     * 等待flush线程的批次数上限 regionserver变慢时批次在这里排队，
+     * 满了之后新到期的批次直接以异常失败，不会无限制地新建线程或者堆积
+     */
+    private int flushQueueCapacity = 256;
+
+
+    public GetBatchConf() {
+    }
+
+    public GetBatchConf(long windowMicros, int maxBatchSize) {
+        this.windowMicros = windowMicros;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public long getWindowMicros() {
+        return windowMicros;
+    }
+
+    public void setWindowMicros(long windowMicros) {
+        this.windowMicros = windowMicros;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getFlushThreads() {
+        return flushThreads;
+    }
+
+    public void setFlushThreads(int flushThreads) {
+        this.flushThreads = flushThreads;
+    }
+
+    public int getFlushQueueCapacity() {
+        return flushQueueCapacity;
+    }
+
+    public void setFlushQueueCapacity(int flushQueueCapacity) {
+        this.flushQueueCapacity = flushQueueCapacity;
+    }
+}
@@ -0,0 +1,56 @@
+package com.ebuer.conf;
+
+/**
+ * HFile离线导入的配置
+ */
+public class HFileBulkLoadConf {
+
+    /**
+     * 临时HFile的根目录 每次导入在下面建一个 表名-时间戳 的子目录
+     * 不带scheme时用hbase配置里的默认文件系统；file://只适用于regionserver和客户端在同一台机器(单机/mini-cluster)
+     */
+    private String stagingDir = "/tmp/hutils-bulkload";
+
+    /**
+     * 内存中排序的最大字节数 满了之后每个列族排序写出一个临时文件 然后清空
+     * 全部写完后临时文件多路归并成每个region每个列族一个HFile；越大临时文件越少 归并时同时打开的文件越少
+     */
+    private long maxBufferBytes = 256L * 1024 * 1024;
+
+    /**
+     * 加载成功后删除临时目录 加载失败时总是保留 可以用LoadIncrementalHFiles手工重试
+     */
+    private boolean deleteStagingDir = true;
+
+
+    public HFileBulkLoadConf() {
+    }
+
+    public HFileBulkLoadConf(String stagingDir) {
+        this.stagingDir = stagingDir;
+    }
+
+    public String getStagingDir() {
+        return stagingDir;
+    }
+
+    public void setStagingDir(String stagingDir) {
+        this.stagingDir = stagingDir;
+    }
+
+    public long getMaxBufferBytes() {
+        return maxBufferBytes;
+    }
+
+    public void setMaxBufferBytes(long maxBufferBytes) {
+        this.maxBufferBytes = maxBufferBytes;
+    }
+
+    public boolean isDeleteStagingDir() {
+        return deleteStagingDir;
+    }
+
+    public void setDeleteStagingDir(boolean deleteStagingDir) {
+        this.deleteStagingDir = deleteStagingDir;
+    }
+}
@@ -6,12 +6,17 @@ import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.util.CollectionUtils;
 import org.apache.hadoop.hbase.util.Pair;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Hbase的本地配置
  * <p>
  * 实际上客户端连接hbase只需要和zk沟通就好了。。
+ * <p>
+ * 构建好的Configuration会被缓存复用，HBaseConfiguration.create()需要解析classpath下的
+ * hbase-default.xml/hbase-site.xml，不能每次操作都来一遍；
+ * 修改配置请走set/setKeyValues，会让缓存失效，下次获取时重新构建。
  *
  * @author xu.qiang
  * @date 2017/1/6.
@@ -27,20 +32,80 @@ public class HbaseConf {
      */
     private List<Pair<String, String>> keyValues;
 
+    /**
+     * 缓存的配置 为null表示需要重新构建
+     */
+    private volatile Configuration configuration;
+
 
     public HbaseConf() {
     }
 
     public HbaseConf(List<Pair<String, String>> keyValues) {
-        this.keyValues = keyValues;
+        setKeyValues(keyValues);
     }
 
     /**
      * 获取Hbase配置信息  添加个性化配置
+     * 返回的是共享的缓存实例，调用方只读不要修改，要改配置请调用set
      *
      * @return
      */
     public Configuration getHbaseConf() {
+        Configuration conf = configuration;
+        if (conf == null) {
+            synchronized (this) {
+                conf = configuration;
+                if (conf == null) {
+                    conf = buildConf();
+                    configuration = conf;
+                }
+            }
+        }
+        return conf;
+    }
+
+    /**
+     * 整体替换个性化配置 缓存失效
+     *
+     * @param keyValues
+     */
+    public synchronized void setKeyValues(List<Pair<String, String>> keyValues) {
+        this.keyValues = keyValues == null ? null : new ArrayList<Pair<String, String>>(keyValues);
+        this.configuration = null;
+    }
+
+    public synchronized List<Pair<String, String>> getKeyValues() {
+        return keyValues == null ? null : new ArrayList<Pair<String, String>>(keyValues);
+    }
+
+    /**
+     * 新增或覆盖一项配置 缓存失效
+     * 注意：已经建立的Connection不受影响，需要重启HbaseClient才会生效
+     *
+     * @param key
+     * @param value
+     */
+    public synchronized void set(String key, String value) {
+        List<Pair<String, String>> newKeyValues = new ArrayList<Pair<String, String>>();
+        if (keyValues != null) {
+            for (Pair<String, String> pair : keyValues) {
+                if (!key.equals(pair.getFirst())) {
+                    newKeyValues.add(pair);
+                }
+            }
+        }
+        newKeyValues.add(new Pair<String, String>(key, value));
+        this.keyValues = newKeyValues;
+        this.configuration = null;
+    }
+
+    /**
+     * 构建一份新的配置
+     *
+     * @return
+     */
+    private Configuration buildConf() {
         Configuration conf = HBaseConfiguration.create();
 
         if (!CollectionUtils.isEmpty(keyValues)) {
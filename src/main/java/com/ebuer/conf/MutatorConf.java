@@ -0,0 +1,55 @@
+package com.ebuer.conf;
+
+/**
+ * 异步写(BufferedMutator)的配置
+ */
+public class MutatorConf {
+
+    /**
+     * 客户端写缓冲区大小 超过之后自动提交 默认2M
+     */
+    private long writeBufferSize = 2 * 1024 * 1024;
+
+    /**
+     * 定时flush的间隔 <=0表示不定时flush 只依赖缓冲区满或者显式flush
+     */
+    private long flushIntervalMillis = 1000;
+
+    /**
+     * 单个KeyValue的最大字节数 <=0表示使用hbase默认值
+     */
+    private int maxKeyValueSize = -1;
+
+
+    public MutatorConf() {
+    }
+
+    public MutatorConf(long writeBufferSize, long flushIntervalMillis) {
+        this.writeBufferSize = writeBufferSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public long getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    public void setWriteBufferSize(long writeBufferSize) {
+        this.writeBufferSize = writeBufferSize;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public int getMaxKeyValueSize() {
+        return maxKeyValueSize;
+    }
+
+    public void setMaxKeyValueSize(int maxKeyValueSize) {
+        this.maxKeyValueSize = maxKeyValueSize;
+    }
+}
@@ -0,0 +1,56 @@
+package com.ebuer.conf;
+
+/**
+ * 按region并行扫描的配置
+ */
+public class ParallelScanConf {
+
+    /**
+     * 同时扫描的region数
+     */
+    private int parallelism = 8;
+
+    /**
+     * 是否按rowKey顺序回调 false时哪个region先扫到先回调
+     */
+    private boolean ordered = false;
+
+    /**
+     * 扫描线程和回调之间缓冲的最大行数 有序模式下是每个region的缓冲
+     * 缓冲满了扫描线程阻塞，不会因为回调慢把整个region读进堆里
+     */
+    private int bufferSize = 1000;
+
+
+    public ParallelScanConf() {
+    }
+
+    public ParallelScanConf(int parallelism, boolean ordered) {
+        this.parallelism = parallelism;
+        this.ordered = ordered;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+}
@@ -0,0 +1,57 @@
+package com.ebuer.conf;
+
+/**
+ * Phoenix批量写入的配置
+ * 每个批次执行executeBatch之后立即commit，客户端的mutation state只保留一个批次，
+ * 两个阈值都要小于phoenix.mutate.maxSize / phoenix.mutate.maxSizeBytes
+ */
+public class PhoenixBatchConf {
+
+    /**
+     * 一个批次最多的行数
+     */
+    private int maxBatchRows = 1000;
+
+    /**
+     * 一个批次最多的字节数(估算值)
+     */
+    private long maxBatchBytes = 4 * 1024 * 1024;
+
+    /**
+     * 某个批次失败后是否继续后面的批次 false时抛PhoenixBatchException
+     */
+    private boolean continueOnError = false;
+
+
+    public PhoenixBatchConf() {
+    }
+
+    public PhoenixBatchConf(int maxBatchRows, long maxBatchBytes) {
+        this.maxBatchRows = maxBatchRows;
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    public int getMaxBatchRows() {
+        return maxBatchRows;
+    }
+
+    public void setMaxBatchRows(int maxBatchRows) {
+        this.maxBatchRows = maxBatchRows;
+    }
+
+    public long getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    public void setMaxBatchBytes(long maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    public boolean isContinueOnError() {
+        return continueOnError;
+    }
+
+    public void setContinueOnError(boolean continueOnError) {
+        this.continueOnError = continueOnError;
+    }
+}
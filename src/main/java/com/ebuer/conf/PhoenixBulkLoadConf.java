@@ -0,0 +1,79 @@
+package com.ebuer.conf;
+
+/**
+ * Phoenix并行导入的配置
+ */
+public class PhoenixBulkLoadConf {
+
+    /**
+     * 数据怎么分到各个worker
+     */
+    public enum PartitionMode {
+        /**
+         * 轮询
+         */
+        ROUND_ROBIN,
+        /**
+         * 按rowKey参数的hash 同一个rowKey总是落在同一个worker上 保证同一行的写入顺序
+         */
+        KEY_HASH
+    }
+
+    /**
+     * worker数 每个worker占用连接池中的一个连接 连接池maxSize要不小于这个值
+     */
+    private int parallelism = 4;
+
+    private PartitionMode partitionMode = PartitionMode.ROUND_ROBIN;
+
+    /**
+     * KEY_HASH时rowKey在参数中的下标
+     */
+    private int keyIndex = 0;
+
+    /**
+     * 每个worker待写入的最大行数 满了之后读取输入的线程阻塞
+     */
+    private int queueCapacity = 10000;
+
+
+    public PhoenixBulkLoadConf() {
+    }
+
+    public PhoenixBulkLoadConf(int parallelism, PartitionMode partitionMode) {
+        this.parallelism = parallelism;
+        this.partitionMode = partitionMode;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public PartitionMode getPartitionMode() {
+        return partitionMode;
+    }
+
+    public void setPartitionMode(PartitionMode partitionMode) {
+        this.partitionMode = partitionMode;
+    }
+
+    public int getKeyIndex() {
+        return keyIndex;
+    }
+
+    public void setKeyIndex(int keyIndex) {
+        this.keyIndex = keyIndex;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
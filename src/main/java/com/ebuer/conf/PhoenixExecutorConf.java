@@ -0,0 +1,93 @@
+package com.ebuer.conf;
+
+/**
+ * Phoenix建连线程池的配置
+ * Phoenix DB不支持直接设置连接超时 所以用线程池执行建连 调用方带超时等待
+ */
+public class PhoenixExecutorConf {
+
+    /**
+     * 线程池满了之后的处理方式
+     */
+    public enum RejectPolicy {
+        /**
+         * 直接失败 调用方收到PhoenixException 不阻塞
+         */
+        ABORT,
+        /**
+         * 在调用方线程上建连 不受连接超时控制
+         */
+        CALLER_RUNS
+    }
+
+    private int corePoolSize = 2;
+
+    private int maxPoolSize = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 等待队列长度
+     */
+    private int queueCapacity = 64;
+
+    private long keepAliveMillis = 10000;
+
+    private RejectPolicy rejectPolicy = RejectPolicy.ABORT;
+
+    /**
+     * JDK支持虚拟线程(21+)时每个建连任务一个虚拟线程 不支持时退回普通线程池
+     * 并发建连数由连接池maxSize限制
+     */
+    private boolean useVirtualThreads = false;
+
+
+    public PhoenixExecutorConf() {
+    }
+
+    public int getCorePoolSize() {
+        return corePoolSize;
+    }
+
+    public void setCorePoolSize(int corePoolSize) {
+        this.corePoolSize = corePoolSize;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    public void setKeepAliveMillis(long keepAliveMillis) {
+        this.keepAliveMillis = keepAliveMillis;
+    }
+
+    public RejectPolicy getRejectPolicy() {
+        return rejectPolicy;
+    }
+
+    public void setRejectPolicy(RejectPolicy rejectPolicy) {
+        this.rejectPolicy = rejectPolicy;
+    }
+
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+}
@@ -0,0 +1,133 @@
+package com.ebuer.conf;
+
+/**
+ * Phoenix连接池的配置
+ */
+public class PhoenixPoolConf {
+
+    /**
+     * 最少保持的空闲连接数
+     */
+    private int minIdle = 2;
+
+    /**
+     * 最大连接数(借出+空闲)
+     */
+    private int maxSize = 16;
+
+    /**
+     * 借连接的最长等待时间 包括新建连接的时间
+     */
+    private long borrowTimeoutMillis = 30000;
+
+    /**
+     * 新建一个物理连接的超时时间 Phoenix不支持直接设置连接超时
+     */
+    private long connectTimeoutMillis = 30000;
+
+    /**
+     * 空闲超过这个时间的连接会被回收(保留minIdle个)
+     */
+    private long idleTimeoutMillis = 10 * 60 * 1000;
+
+    /**
+     * 连接最长存活时间 到期后归还时销毁 <=0表示不限制
+     */
+    private long maxLifetimeMillis = 30 * 60 * 1000;
+
+    /**
+     * 借出时校验连接的超时时间 单位秒
+     */
+    private int validationTimeoutSeconds = 3;
+
+    /**
+     * 空闲回收的检查间隔
+     */
+    private long evictionIntervalMillis = 30000;
+
+    /**
+     * 每个连接缓存的PreparedStatement个数 按LRU淘汰 最少为1
+     */
+    private int statementCacheSize = 64;
+
+
+    public PhoenixPoolConf() {
+    }
+
+    public PhoenixPoolConf(int minIdle, int maxSize) {
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getBorrowTimeoutMillis() {
+        return borrowTimeoutMillis;
+    }
+
+    public void setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(long connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public long getMaxLifetimeMillis() {
+        return maxLifetimeMillis;
+    }
+
+    public void setMaxLifetimeMillis(long maxLifetimeMillis) {
+        this.maxLifetimeMillis = maxLifetimeMillis;
+    }
+
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    public long getEvictionIntervalMillis() {
+        return evictionIntervalMillis;
+    }
+
+    public void setEvictionIntervalMillis(long evictionIntervalMillis) {
+        this.evictionIntervalMillis = evictionIntervalMillis;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+}
@@ -0,0 +1,99 @@
+package com.ebuer.conf;
+
+/**
+ * 客户端重试的配置 只对幂等操作(get/put、整行/整列族/全部版本/指定时间戳的delete、phoenix查询)和连接生效
+ * 只删最新版本(addColumn不带时间戳)的delete重复执行会多删一个版本，不重试
+ * <p>
+ * 默认maxAttempts=1 不重试。hbase客户端内部已经按hbase.client.retries.number重试过，这里是外层的重试，
+ * 开启时要同时调小hbase.client.retries.number(HbaseConf里配置)，让单次尝试尽快失败、由这里退避后重试，
+ * 否则最坏情况下总尝试次数是两者的乘积
+ */
+public class RetryConf {
+
+    /**
+     * 最多尝试几次 包含第一次 1表示不重试
+     */
+    private int maxAttempts = 1;
+
+    /**
+     * 第一次重试前的等待 之后每次翻倍
+     */
+    private long initialBackoffMillis = 50;
+
+    /**
+     * 单次等待的上限
+     */
+    private long maxBackoffMillis = 2000;
+
+    /**
+     * 随机抖动比例 0~1 实际等待在 backoff * (1 - jitter) ~ backoff 之间 避免大量客户端同时重试
+     */
+    private double jitter = 0.5;
+
+    /**
+     * 重试预算：每次调用积攒的重试额度 0.1表示长期来看重试最多占调用量的10%
+     * 集群整体不可用时预算很快耗尽，不会因为重试把流量放大maxAttempts倍
+     */
+    private double budgetRatio = 0.1;
+
+    /**
+     * 预算上限 也是初始额度 允许短时间内的突发重试
+     */
+    private int budgetMaxRetries = 100;
+
+
+    public RetryConf() {
+    }
+
+    public RetryConf(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    public void setInitialBackoffMillis(long initialBackoffMillis) {
+        this.initialBackoffMillis = initialBackoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    public void setMaxBackoffMillis(long maxBackoffMillis) {
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    public void setJitter(double jitter) {
+        this.jitter = jitter;
+    }
+
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    public void setBudgetRatio(double budgetRatio) {
+        this.budgetRatio = budgetRatio;
+    }
+
+    public int getBudgetMaxRetries() {
+        return budgetMaxRetries;
+    }
+
+    public void setBudgetMaxRetries(int budgetMaxRetries) {
+        this.budgetMaxRetries = budgetMaxRetries;
+    }
+}
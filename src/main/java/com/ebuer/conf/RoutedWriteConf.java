@@ -0,0 +1,68 @@
+package com.ebuer.conf;
+
+/**
+ * 按regionserver分组写入的配置
+ */
+public class RoutedWriteConf {
+
+    /**
+     * 同时写入的regionserver数 也是写线程数
+     */
+    private int parallelism = 8;
+
+    /**
+     * 每个regionserver一次put的最大行数
+     */
+    private int maxBatchSize = 2048;
+
+    /**
+     * 最多写几轮 每轮只重试上一轮失败的行
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * 重试前等待 第n次重试等待n倍
+     */
+    private long retryBackoffMillis = 100;
+
+
+    public RoutedWriteConf() {
+    }
+
+    public RoutedWriteConf(int parallelism, int maxAttempts) {
+        this.parallelism = parallelism;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getRetryBackoffMillis() {
+        return retryBackoffMillis;
+    }
+
+    public void setRetryBackoffMillis(long retryBackoffMillis) {
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+}
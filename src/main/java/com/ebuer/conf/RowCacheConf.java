@@ -0,0 +1,69 @@
+package com.ebuer.conf;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 客户端行缓存的配置
+ */
+public class RowCacheConf {
+
+    /**
+     * 缓存最多占用的字节数(估算值) 超过之后按LRU淘汰
+     */
+    private long maxBytes = 64 * 1024 * 1024;
+
+    /**
+     * 默认过期时间 单位毫秒
+     */
+    private long defaultTtlMillis = 60000;
+
+    /**
+     * 表级别的过期时间 单位毫秒 没配的表用defaultTtlMillis <=0表示这张表不缓存
+     */
+    private Map<String, Long> tableTtlMillis = new HashMap<String, Long>();
+
+
+    public RowCacheConf() {
+    }
+
+    public RowCacheConf(long maxBytes, long defaultTtlMillis) {
+        this.maxBytes = maxBytes;
+        this.defaultTtlMillis = defaultTtlMillis;
+    }
+
+    /**
+     * 获取tableName的过期时间
+     *
+     * @param tableName
+     * @return
+     */
+    public long getTtlMillis(String tableName) {
+        Long ttl = tableTtlMillis.get(tableName);
+        return ttl == null ? defaultTtlMillis : ttl;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getDefaultTtlMillis() {
+        return defaultTtlMillis;
+    }
+
+    public void setDefaultTtlMillis(long defaultTtlMillis) {
+        this.defaultTtlMillis = defaultTtlMillis;
+    }
+
+    public Map<String, Long> getTableTtlMillis() {
+        return tableTtlMillis;
+    }
+
+    public void setTableTtlMillis(Map<String, Long> tableTtlMillis) {
+        this.tableTtlMillis = tableTtlMillis;
+    }
+}
@@ -0,0 +1,72 @@
+package com.ebuer.conf;
+
+/**
+ * 扫描的默认参数 只作用在调用方没有显式设置的Scan上
+ */
+public class ScanConf {
+
+    /**
+     * 每次rpc从regionserver拉回的行数 行数越多rpc越少 但客户端占用的内存越多
+     */
+    private int caching = 100;
+
+    /**
+     * 每次rpc最多拉回的字节数 <=0表示使用hbase默认值
+     */
+    private long maxResultSize = 2 * 1024 * 1024;
+
+    /**
+     * 宽行每次最多返回的列数 <=0表示整行返回
+     */
+    private int batch = -1;
+
+    /**
+     * 是否使用regionserver的block cache 为null表示不改变Scan的设置
+     * 只作用在客户端按起止rowKey创建的Scan上 调用方传入的Scan以它自己的setCacheBlocks为准
+     * 大范围扫描建议false 避免把热数据挤出block cache
+     */
+    private Boolean cacheBlocks = null;
+
+
+    public ScanConf() {
+    }
+
+    public ScanConf(int caching, long maxResultSize, int batch, Boolean cacheBlocks) {
+        this.caching = caching;
+        this.maxResultSize = maxResultSize;
+        this.batch = batch;
+        this.cacheBlocks = cacheBlocks;
+    }
+
+    public int getCaching() {
+        return caching;
+    }
+
+    public void setCaching(int caching) {
+        this.caching = caching;
+    }
+
+    public long getMaxResultSize() {
+        return maxResultSize;
+    }
+
+    public void setMaxResultSize(long maxResultSize) {
+        this.maxResultSize = maxResultSize;
+    }
+
+    public int getBatch() {
+        return batch;
+    }
+
+    public void setBatch(int batch) {
+        this.batch = batch;
+    }
+
+    public Boolean getCacheBlocks() {
+        return cacheBlocks;
+    }
+
+    public void setCacheBlocks(Boolean cacheBlocks) {
+        this.cacheBlocks = cacheBlocks;
+    }
+}
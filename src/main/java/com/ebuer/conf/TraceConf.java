@@ -0,0 +1,41 @@
+package com.ebuer.conf;
+
+/**
+ * 慢操作日志的配置
+ */
+public class TraceConf {
+
+    /**
+     * 耗时超过这个值的操作打warn日志 <=0表示不打
+     */
+    private long slowOperationMillis = 1000;
+
+    /**
+     * 日志里rowkey/sql最多输出的字符数
+     */
+    private int maxTargetLength = 256;
+
+
+    public TraceConf() {
+    }
+
+    public TraceConf(long slowOperationMillis) {
+        this.slowOperationMillis = slowOperationMillis;
+    }
+
+    public long getSlowOperationMillis() {
+        return slowOperationMillis;
+    }
+
+    public void setSlowOperationMillis(long slowOperationMillis) {
+        this.slowOperationMillis = slowOperationMillis;
+    }
+
+    public int getMaxTargetLength() {
+        return maxTargetLength;
+    }
+
+    public void setMaxTargetLength(int maxTargetLength) {
+        this.maxTargetLength = maxTargetLength;
+    }
+}
@@ -0,0 +1,11 @@
+package com.ebuer.exception;
+
+/**
+ * 表的熔断器处于打开状态 调用没有发出直接失败
+ */
+public class CircuitBreakerOpenException extends HbaseComponentException {
+
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.ebuer.exception;
+
+import com.ebuer.hbase.RoutedWriteReport;
+
+/**
+ * 按regionserver分组写入 重试之后仍有行失败 失败的行见RoutedWriteReport
+ */
+public class HbaseWriteException extends HbaseComponentException {
+
+    private final RoutedWriteReport report;
+
+    public HbaseWriteException(String message, Throwable cause, RoutedWriteReport report) {
+        super(message, cause);
+        this.report = report;
+    }
+
+    public RoutedWriteReport getReport() {
+        return report;
+    }
+}
@@ -0,0 +1,20 @@
+package com.ebuer.exception;
+
+import com.ebuer.hbase.BatchReport;
+
+/**
+ * 批量写入某个批次失败 之前的批次已经提交 详情见BatchReport
+ */
+public class PhoenixBatchException extends PhoenixException {
+
+    private final BatchReport report;
+
+    public PhoenixBatchException(String message, Throwable cause, BatchReport report) {
+        super(message, cause);
+        this.report = report;
+    }
+
+    public BatchReport getReport() {
+        return report;
+    }
+}
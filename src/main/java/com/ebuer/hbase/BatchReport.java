@@ -0,0 +1,155 @@
+package com.ebuer.hbase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 批量写入的结果报告 每个批次一条记录
+ */
+public class BatchReport {
+
+    /**
+     * 每个批次结束时回调 用于汇报进度
+     */
+    public interface BatchListener {
+        void onBatch(BatchResult batch);
+    }
+
+    private final List<BatchResult> batches = new ArrayList<BatchResult>();
+
+    private final BatchListener listener;
+
+    private long successRows;
+
+    private long failedRows;
+
+    private long elapsedMillis;
+
+
+    public BatchReport() {
+        this(null);
+    }
+
+    public BatchReport(BatchListener listener) {
+        this.listener = listener;
+    }
+
+    void add(BatchResult batch) {
+        synchronized (this) {
+            batches.add(batch);
+            if (batch.isSuccess()) {
+                successRows += batch.getRows();
+            } else {
+                failedRows += batch.getRows();
+            }
+        }
+        if (listener != null) {
+            listener.onBatch(batch);
+        }
+    }
+
+    synchronized void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public synchronized List<BatchResult> getBatches() {
+        return Collections.unmodifiableList(new ArrayList<BatchResult>(batches));
+    }
+
+    /**
+     * 失败的批次
+     */
+    public synchronized List<BatchResult> getFailedBatches() {
+        List<BatchResult> failed = new ArrayList<BatchResult>();
+        for (BatchResult batch : batches) {
+            if (!batch.isSuccess()) {
+                failed.add(batch);
+            }
+        }
+        return failed;
+    }
+
+    public synchronized boolean hasFailure() {
+        return failedRows > 0;
+    }
+
+    public synchronized long getSuccessRows() {
+        return successRows;
+    }
+
+    public synchronized long getFailedRows() {
+        return failedRows;
+    }
+
+    public synchronized long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BatchReport{batches=" + batches.size() + ", successRows=" + successRows
+                + ", failedRows=" + failedRows + ", elapsedMillis=" + elapsedMillis + "}";
+    }
+
+    /**
+     * 一个批次的结果
+     */
+    public static class BatchResult {
+
+        private final int worker;
+
+        private final int index;
+
+        private final int rows;
+
+        private final long bytes;
+
+        private final long elapsedMillis;
+
+        private final Throwable error;
+
+        BatchResult(int worker, int index, int rows, long bytes, long elapsedMillis, Throwable error) {
+            this.worker = worker;
+            this.index = index;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.elapsedMillis = elapsedMillis;
+            this.error = error;
+        }
+
+        /**
+         * 并行写入时是第几个worker 单线程写入时为0
+         */
+        public int getWorker() {
+            return worker;
+        }
+
+        /**
+         * 批次序号 每个worker从0开始
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+    }
+}
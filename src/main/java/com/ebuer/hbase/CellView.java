@@ -0,0 +1,310 @@
+package com.ebuer.hbase;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+
+/**
+ * cell的只读视图 row/family/qualifier/value都以 底层数组+offset+length 的形式暴露
+ * <p>
+ * 1、不调用CellUtil.cloneValue/Result.getValue 不会为每个cell拷贝出新的byte[]
+ * 2、一个CellView在遍历时复用 配合CellVisitor使用 大扫描时每个cell不产生垃圾
+ * 3、valueAsLong/Int/Double 直接在底层数组上解码；appendValue把utf8解码进外部复用的StringBuilder
+ */
+public final class CellView {
+
+    private Cell cell;
+
+    public CellView() {
+    }
+
+    public CellView(Cell cell) {
+        this.cell = cell;
+    }
+
+    /**
+     * 指向另一个cell 复用同一个视图
+     *
+     * @param cell
+     * @return this
+     */
+    public CellView reset(Cell cell) {
+        this.cell = cell;
+        return this;
+    }
+
+    /**
+     * 逐个回调一行里的cell 直接使用Result内部的cell数组
+     *
+     * @param result
+     * @param visitor
+     * @return false表示visitor要求提前结束
+     * @throws IOException
+     */
+    public static boolean forEach(Result result, CellVisitor visitor) throws IOException {
+        return forEach(result, new CellView(), visitor);
+    }
+
+    /**
+     * 逐个回调scanner里所有行的cell 整个扫描只用一个CellView 不负责关闭scanner
+     *
+     * @param scanner
+     * @param visitor
+     * @return 回调的cell数
+     * @throws IOException
+     */
+    public static long forEach(ResultScanner scanner, CellVisitor visitor) throws IOException {
+        CellView view = new CellView();
+        long count = 0;
+        for (Result result = scanner.next(); result != null; result = scanner.next()) {
+            Cell[] cells = result.rawCells();
+            if (cells == null) {
+                continue;
+            }
+            for (Cell cell : cells) {
+                count++;
+                if (!visitor.visit(view.reset(cell))) {
+                    return count;
+                }
+            }
+        }
+        return count;
+    }
+
+    static boolean forEach(Result result, CellView view, CellVisitor visitor) throws IOException {
+        Cell[] cells = result.rawCells();
+        if (cells == null) {
+            return true;
+        }
+        for (Cell cell : cells) {
+            if (!visitor.visit(view.reset(cell))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Cell getCell() {
+        return cell;
+    }
+
+    public byte[] getRowArray() {
+        return cell.getRowArray();
+    }
+
+    public int getRowOffset() {
+        return cell.getRowOffset();
+    }
+
+    public int getRowLength() {
+        return cell.getRowLength();
+    }
+
+    public byte[] getFamilyArray() {
+        return cell.getFamilyArray();
+    }
+
+    public int getFamilyOffset() {
+        return cell.getFamilyOffset();
+    }
+
+    public int getFamilyLength() {
+        return cell.getFamilyLength();
+    }
+
+    public byte[] getQualifierArray() {
+        return cell.getQualifierArray();
+    }
+
+    public int getQualifierOffset() {
+        return cell.getQualifierOffset();
+    }
+
+    public int getQualifierLength() {
+        return cell.getQualifierLength();
+    }
+
+    public byte[] getValueArray() {
+        return cell.getValueArray();
+    }
+
+    public int getValueOffset() {
+        return cell.getValueOffset();
+    }
+
+    public int getValueLength() {
+        return cell.getValueLength();
+    }
+
+    public long getTimestamp() {
+        return cell.getTimestamp();
+    }
+
+    public boolean familyEquals(byte[] family) {
+        return Bytes.equals(cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength(),
+                family, 0, family.length);
+    }
+
+    public boolean qualifierEquals(byte[] qualifier) {
+        return Bytes.equals(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength(),
+                qualifier, 0, qualifier.length);
+    }
+
+    /**
+     * 判断列 family/qualifier建议预先转成byte[]复用
+     */
+    public boolean matches(byte[] family, byte[] qualifier) {
+        return qualifierEquals(qualifier) && familyEquals(family);
+    }
+
+    public boolean valueEquals(byte[] value) {
+        return Bytes.equals(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength(),
+                value, 0, value.length);
+    }
+
+    /**
+     * 按Bytes.toBytes(long)的编码解码
+     */
+    public long valueAsLong() {
+        return toLong(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+    }
+
+    /**
+     * 按Bytes.toBytes(int)的编码解码
+     */
+    public int valueAsInt() {
+        return toInt(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+    }
+
+    /**
+     * 按Bytes.toBytes(double)的编码解码
+     */
+    public double valueAsDouble() {
+        return Double.longBitsToDouble(valueAsLong());
+    }
+
+    /**
+     * utf8解码成String 只分配String本身 不先拷贝出value
+     */
+    public String valueAsString() {
+        return Bytes.toString(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+    }
+
+    public String rowAsString() {
+        return Bytes.toString(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength());
+    }
+
+    public String familyAsString() {
+        return Bytes.toString(cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength());
+    }
+
+    public String qualifierAsString() {
+        return Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
+    }
+
+    /**
+     * utf8解码追加到外部的StringBuilder 复用StringBuilder时完全不分配内存
+     * 合法的utf8和valueAsString结果一致 非法字节序列的替换规则见appendUtf8
+     *
+     * @param builder
+     * @return builder
+     */
+    public StringBuilder appendValue(StringBuilder builder) {
+        return appendUtf8(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength(), builder);
+    }
+
+    public static long toLong(byte[] array, int offset, int length) {
+        if (length != Bytes.SIZEOF_LONG) {
+            throw new IllegalArgumentException("wrong length " + length + " for long");
+        }
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            value = (value << 8) | (array[i] & 0xFF);
+        }
+        return value;
+    }
+
+    public static int toInt(byte[] array, int offset, int length) {
+        if (length != Bytes.SIZEOF_INT) {
+            throw new IllegalArgumentException("wrong length " + length + " for int");
+        }
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            value = (value << 8) | (array[i] & 0xFF);
+        }
+        return value;
+    }
+
+    public static double toDouble(byte[] array, int offset, int length) {
+        return Double.longBitsToDouble(toLong(array, offset, length));
+    }
+
+    /**
+     * utf8解码 非法的字节序列(过长编码 代理区 超出U+10FFFF 截断)按最大非法子序列用一个U+FFFD代替,
+     * 不合法的后续字节不会被吞掉而是作为新字符的起始重新解码
+     */
+    public static StringBuilder appendUtf8(byte[] array, int offset, int length, StringBuilder builder) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            int b = array[i++] & 0xFF;
+            if (b < 0x80) {
+                builder.append((char) b);
+                continue;
+            }
+            int remaining;
+            int codePoint;
+            // 第二个字节的合法范围, 用来排除过长编码 代理区和超出U+10FFFF的码点
+            int min = 0x80;
+            int max = 0xBF;
+            if (b >= 0xC2 && b <= 0xDF) {
+                remaining = 1;
+                codePoint = b & 0x1F;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                remaining = 2;
+                codePoint = b & 0x0F;
+                if (b == 0xE0) {
+                    min = 0xA0;
+                } else if (b == 0xED) {
+                    max = 0x9F;
+                }
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                remaining = 3;
+                codePoint = b & 0x07;
+                if (b == 0xF0) {
+                    min = 0x90;
+                } else if (b == 0xF4) {
+                    max = 0x8F;
+                }
+            } else {
+                builder.append('\uFFFD');
+                continue;
+            }
+            while (remaining > 0 && i < end) {
+                int next = array[i] & 0xFF;
+                if (next < min || next > max) {
+                    break;
+                }
+                codePoint = (codePoint << 6) | (next & 0x3F);
+                min = 0x80;
+                max = 0xBF;
+                remaining--;
+                i++;
+            }
+            if (remaining > 0) {
+                builder.append('\uFFFD');
+            } else {
+                builder.appendCodePoint(codePoint);
+            }
+        }
+        return builder;
+    }
+
+    @Override
+    public String toString() {
+        return cell == null ? "CellView{}" : cell.toString();
+    }
+}
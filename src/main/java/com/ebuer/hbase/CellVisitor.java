@@ -0,0 +1,16 @@
+package com.ebuer.hbase;
+
+import java.io.IOException;
+
+/**
+ * 逐个cell回调 CellView是复用的 回调返回后内容就会变化 不要在外面持有
+ */
+public interface CellVisitor {
+
+    /**
+     * @param cell 当前cell
+     * @return false表示提前结束
+     * @throws IOException
+     */
+    boolean visit(CellView cell) throws IOException;
+}
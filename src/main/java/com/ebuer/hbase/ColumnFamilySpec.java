@@ -0,0 +1,148 @@
+package com.ebuer.hbase;
+
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.regionserver.BloomType;
+
+/**
+ * 列族的调优参数 没有设置的项保持hbase默认值(修改列族时保持原值)
+ * 例：ColumnFamilySpec.of("base_info").compression(Compression.Algorithm.SNAPPY)
+ * .dataBlockEncoding(DataBlockEncoding.FAST_DIFF).bloomType(BloomType.ROW).ttlSeconds(7 * 24 * 3600)
+ */
+public class ColumnFamilySpec {
+
+    private final String name;
+
+    private Compression.Algorithm compression;
+
+    private DataBlockEncoding dataBlockEncoding;
+
+    private BloomType bloomType;
+
+    private Integer blockSize;
+
+    private Boolean blockCacheEnabled;
+
+    private Boolean inMemory;
+
+    private Integer ttlSeconds;
+
+    private Integer maxVersions;
+
+    private ColumnFamilySpec(String name) {
+        this.name = name;
+    }
+
+    public static ColumnFamilySpec of(String name) {
+        return new ColumnFamilySpec(name);
+    }
+
+    /**
+     * 只有名字的列族 参数全部默认
+     */
+    public static ColumnFamilySpec[] defaults(String... names) {
+        ColumnFamilySpec[] specs = new ColumnFamilySpec[names.length];
+        for (int i = 0; i < names.length; i++) {
+            specs[i] = new ColumnFamilySpec(names[i]);
+        }
+        return specs;
+    }
+
+    /**
+     * 压缩算法 SNAPPY/LZ4需要regionserver上有对应的native库
+     */
+    public ColumnFamilySpec compression(Compression.Algorithm compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * 块内编码 rowkey/列名重复多时FAST_DIFF/PREFIX能明显减小存储和block cache占用
+     */
+    public ColumnFamilySpec dataBlockEncoding(DataBlockEncoding dataBlockEncoding) {
+        this.dataBlockEncoding = dataBlockEncoding;
+        return this;
+    }
+
+    /**
+     * 布隆过滤器 按行get用ROW，按行+列get用ROWCOL
+     */
+    public ColumnFamilySpec bloomType(BloomType bloomType) {
+        this.bloomType = bloomType;
+        return this;
+    }
+
+    /**
+     * HFile块大小 随机读多调小 扫描多调大 默认64K
+     */
+    public ColumnFamilySpec blockSize(int blockSize) {
+        this.blockSize = blockSize;
+        return this;
+    }
+
+    public ColumnFamilySpec blockCacheEnabled(boolean blockCacheEnabled) {
+        this.blockCacheEnabled = blockCacheEnabled;
+        return this;
+    }
+
+    /**
+     * 放进block cache的in-memory区 优先保留
+     */
+    public ColumnFamilySpec inMemory(boolean inMemory) {
+        this.inMemory = inMemory;
+        return this;
+    }
+
+    public ColumnFamilySpec ttlSeconds(int ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+        return this;
+    }
+
+    public ColumnFamilySpec maxVersions(int maxVersions) {
+        this.maxVersions = maxVersions;
+        return this;
+    }
+
+    /**
+     * 生成新的列族描述
+     */
+    public HColumnDescriptor toDescriptor() {
+        return applyTo(new HColumnDescriptor(name));
+    }
+
+    /**
+     * 把设置了的项覆盖到已有的列族描述上
+     */
+    public HColumnDescriptor applyTo(HColumnDescriptor descriptor) {
+        if (compression != null) {
+            descriptor.setCompressionType(compression);
+        }
+        if (dataBlockEncoding != null) {
+            descriptor.setDataBlockEncoding(dataBlockEncoding);
+        }
+        if (bloomType != null) {
+            descriptor.setBloomFilterType(bloomType);
+        }
+        if (blockSize != null) {
+            descriptor.setBlocksize(blockSize);
+        }
+        if (blockCacheEnabled != null) {
+            descriptor.setBlockCacheEnabled(blockCacheEnabled);
+        }
+        if (inMemory != null) {
+            descriptor.setInMemory(inMemory);
+        }
+        if (ttlSeconds != null) {
+            descriptor.setTimeToLive(ttlSeconds);
+        }
+        if (maxVersions != null) {
+            descriptor.setMaxVersions(maxVersions);
+        }
+        return descriptor;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,287 @@
+package com.ebuer.hbase;
+
+import com.ebuer.conf.GetBatchConf;
+import com.ebuer.exception.HbaseComponentException;
+import com.ebuer.util.NamedThreadFactory;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把并发的单行get按表合并成一次table.get(List<Get>) 结果再分发回各个等待的调用方
+ * <p>
+ * 一批在以下任一条件满足时发出：
+ * 1、攒够maxBatchSize个 由攒满的那个调用线程直接发出
+ * 2、窗口到期 由内部的定时线程封批 交给flush线程池发出 一张表的慢查询不会拖住其他表的窗口
+ * flush线程池是有界的(flushThreads + flushQueueCapacity) 排满之后到期的批次直接失败
+ */
+public class GetCoalescer implements Closeable {
+
+    private final HbaseClient hbaseClient;
+
+    private final long windowMicros;
+
+    private final int maxBatchSize;
+
+    /**
+     * 每张表当前正在攒的一批
+     */
+    private final ConcurrentMap<String, Batch> batches = new ConcurrentHashMap<String, Batch>();
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * 发出窗口到期的批次 线程数和队列都有界
+     */
+    private final ThreadPoolExecutor flushExecutor;
+
+    private volatile boolean closed = false;
+
+    /*统计*/
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong getCount = new AtomicLong();
+    private final AtomicLong sizeFlushCount = new AtomicLong();
+    private final AtomicLong windowFlushCount = new AtomicLong();
+
+
+    GetCoalescer(HbaseClient hbaseClient, GetBatchConf conf) {
+        this.hbaseClient = hbaseClient;
+        this.windowMicros = conf.getWindowMicros();
+        this.maxBatchSize = conf.getMaxBatchSize();
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("hbase-get-coalescer"));
+        this.flushExecutor = new ThreadPoolExecutor(conf.getFlushThreads(), conf.getFlushThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(conf.getFlushQueueCapacity()),
+                new NamedThreadFactory("hbase-get-coalescer-flush"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 查询一行 阻塞直到所在的批次返回
+     *
+     * @param tableName
+     * @param get
+     * @return
+     */
+    public Result get(String tableName, Get get) {
+        PendingGet pendingGet = new PendingGet(get);
+
+        Batch full = null;
+        while (true) {
+            if (closed) {
+                throw new HbaseComponentException("GetCoalescer has been closed");
+            }
+            Batch batch = batches.get(tableName);
+            if (batch == null) {
+                Batch created = new Batch(tableName);
+                batch = batches.putIfAbsent(tableName, created);
+                if (batch == null) {
+                    batch = created;
+                    if (!scheduleWindow(batch)) {
+                        throw new HbaseComponentException("GetCoalescer has been closed");
+                    }
+                }
+            }
+
+            int size = batch.add(pendingGet);
+            if (size < 0) {
+                // 这一批已经被发出去了 换下一批
+                batches.remove(tableName, batch);
+                continue;
+            }
+            if (size >= maxBatchSize) {
+                batches.remove(tableName, batch);
+                full = batch;
+            }
+            break;
+        }
+
+        if (full != null) {
+            sizeFlushCount.incrementAndGet();
+            full.flush();
+        }
+
+        return pendingGet.await();
+    }
+
+    /**
+     * @return 定时线程已关闭时返回false 批次已经以失败结束
+     */
+    private boolean scheduleWindow(final Batch batch) {
+        try {
+            scheduler.schedule(new Runnable() {
+                public void run() {
+                    if (batch.seal()) {
+                        batches.remove(batch.tableName, batch);
+                        windowFlushCount.incrementAndGet();
+                        flushAsync(batch);
+                    }
+                }
+            }, windowMicros, TimeUnit.MICROSECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            batches.remove(batch.tableName, batch);
+            batch.seal();
+            batch.fail(new HbaseComponentException("GetCoalescer has been closed"));
+            return false;
+        }
+    }
+
+    private void flushAsync(final Batch batch) {
+        try {
+            flushExecutor.execute(new Runnable() {
+                public void run() {
+                    batch.flush();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            batch.fail(new HbaseComponentException(closed ? "GetCoalescer has been closed"
+                    : "GetCoalescer flush queue is full, " + flushExecutor.getActiveCount() + " batches in flight", e));
+        }
+    }
+
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        flushExecutor.shutdown();
+        for (Batch batch : batches.values()) {
+            if (batch.seal()) {
+                batch.fail(new HbaseComponentException("GetCoalescer has been closed"));
+            }
+        }
+        batches.clear();
+    }
+
+    /**
+     * 已发出的批次数
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * 已合并的get数
+     */
+    public long getGetCount() {
+        return getCount.get();
+    }
+
+    /**
+     * 因攒满而发出的批次数
+     */
+    public long getSizeFlushCount() {
+        return sizeFlushCount.get();
+    }
+
+    /**
+     * 因窗口到期而发出的批次数
+     */
+    public long getWindowFlushCount() {
+        return windowFlushCount.get();
+    }
+
+    /**
+     * 批次填充率 平均每批get数/maxBatchSize
+     */
+    public double getFillRatio() {
+        long batches = batchCount.get();
+        return batches == 0 ? 0 : (double) getCount.get() / batches / maxBatchSize;
+    }
+
+    /**
+     * 一张表正在攒的一批
+     */
+    private class Batch {
+
+        private final String tableName;
+
+        private final List<PendingGet> pendingGets = new ArrayList<PendingGet>();
+
+        private boolean sealed = false;
+
+        Batch(String tableName) {
+            this.tableName = tableName;
+        }
+
+        /**
+         * @return 加入后的大小 已封批返回-1
+         */
+        synchronized int add(PendingGet pendingGet) {
+            if (sealed) {
+                return -1;
+            }
+            pendingGets.add(pendingGet);
+            if (pendingGets.size() >= maxBatchSize) {
+                sealed = true;
+            }
+            return pendingGets.size();
+        }
+
+        /**
+         * @return 是否由本次调用封批
+         */
+        synchronized boolean seal() {
+            if (sealed) {
+                return false;
+            }
+            sealed = true;
+            return true;
+        }
+
+        void flush() {
+            List<Get> gets = new ArrayList<Get>(pendingGets.size());
+            for (PendingGet pendingGet : pendingGets) {
+                gets.add(pendingGet.get);
+            }
+
+            batchCount.incrementAndGet();
+            getCount.addAndGet(gets.size());
+
+            try {
+                Result[] results = hbaseClient.getRowsDirect("getRows.coalesced", tableName, gets);
+                for (int i = 0; i < pendingGets.size(); i++) {
+                    pendingGets.get(i).future.complete(results[i]);
+                }
+            } catch (Throwable e) {
+                fail(e);
+            }
+        }
+
+        void fail(Throwable e) {
+            for (PendingGet pendingGet : pendingGets) {
+                pendingGet.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static class PendingGet {
+
+        private final Get get;
+
+        private final CompletableFuture<Result> future = new CompletableFuture<Result>();
+
+        PendingGet(Get get) {
+            this.get = get;
+        }
+
+        Result await() {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new HbaseComponentException("Error getRow interrupted.  Cause: " + e, e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new HbaseComponentException("Error getRow.  Cause: " + cause, cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.ebuer.hbase;
+
+/**
+ * 一次HFile导入的结果
+ */
+public class HFileBulkLoadReport {
+
+    private String stagingDir;
+
+    private long cells;
+
+    private int hfiles;
+
+    private long hfileBytes;
+
+    private long writeMillis;
+
+    private long loadMillis;
+
+
+    void addHFile(long bytes) {
+        hfiles++;
+        hfileBytes += bytes;
+    }
+
+    void addCell() {
+        cells++;
+    }
+
+    public String getStagingDir() {
+        return stagingDir;
+    }
+
+    void setStagingDir(String stagingDir) {
+        this.stagingDir = stagingDir;
+    }
+
+    public long getCells() {
+        return cells;
+    }
+
+    public int getHfiles() {
+        return hfiles;
+    }
+
+    public long getHfileBytes() {
+        return hfileBytes;
+    }
+
+    /**
+     * 排序和写HFile的耗时
+     */
+    public long getWriteMillis() {
+        return writeMillis;
+    }
+
+    void setWriteMillis(long writeMillis) {
+        this.writeMillis = writeMillis;
+    }
+
+    /**
+     * LoadIncrementalHFiles加载的耗时
+     */
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    void setLoadMillis(long loadMillis) {
+        this.loadMillis = loadMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "HFileBulkLoadReport{cells=" + cells + ", hfiles=" + hfiles + ", hfileBytes=" + hfileBytes
+                + ", writeMillis=" + writeMillis + ", loadMillis=" + loadMillis + ", stagingDir=" + stagingDir + "}";
+    }
+}
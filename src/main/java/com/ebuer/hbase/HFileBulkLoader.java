@@ -0,0 +1,510 @@
+package com.ebuer.hbase;
+
+import com.ebuer.conf.HFileBulkLoadConf;
+import com.ebuer.exception.HbaseComponentException;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFile;
+import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.io.hfile.HFileScanner;
+import org.apache.hadoop.hbase.mapreduce.LoadIncrementalHFiles;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * HFile离线导入 数据不经过regionserver的memstore和WAL
+ * <p>
+ * 1、输入的cell先在内存中按列族缓冲，超过maxBufferBytes后排序，每个列族写出一个有序的临时文件；
+ * 全部输入写完后按列族把临时文件多路归并，按表当前的region边界切开，
+ * 每个region每个列族只写一个HFile到 stagingDir/表名-时间戳/列族/ 下，
+ * 不会超过LoadIncrementalHFiles对每个region每个列族HFile个数的限制(hbase.mapreduce.bulkload.max.hfiles.perRegion.perFamily)
+ * 2、HFile的压缩、编码、块大小、布隆过滤器按列族的定义，文件元信息和HFileOutputFormat2一致
+ * 3、全部写完后交给LoadIncrementalHFiles加载；写的过程中region发生了split，加载时会自动再切分
+ * 4、加盐表会自动给rowkey加盐
+ * <p>
+ * 时间戳为LATEST_TIMESTAMP的cell会被改成导入开始的时间，和HFileOutputFormat2一样直接修改传入的Put
+ * <p>
+ * 依赖hbase-server(StoreFile、LoadIncrementalHFiles) 在pom里是optional 使用时需要自己加到classpath上
+ */
+public class HFileBulkLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(HFileBulkLoader.class);
+
+    private final HbaseClient hbaseClient;
+
+    private final HFileBulkLoadConf conf;
+
+
+    public HFileBulkLoader(HbaseClient hbaseClient, HFileBulkLoadConf conf) {
+        this.hbaseClient = hbaseClient;
+        this.conf = conf;
+    }
+
+    /**
+     * 导入Put 输入不需要有序
+     *
+     * @param tableName
+     * @param puts
+     * @return
+     */
+    public HFileBulkLoadReport load(String tableName, Iterable<Put> puts) {
+        return run(tableName, puts.iterator(), true);
+    }
+
+    /**
+     * 导入KeyValue/Cell 输入不需要有序
+     *
+     * @param tableName
+     * @param cells
+     * @return
+     */
+    public HFileBulkLoadReport loadCells(String tableName, Iterable<? extends Cell> cells) {
+        return run(tableName, cells.iterator(), false);
+    }
+
+    private HFileBulkLoadReport run(String tableName, Iterator<?> items, boolean puts) {
+        long begin = System.currentTimeMillis();
+        HFileBulkLoadReport report = new HFileBulkLoadReport();
+        SaltedKeyCodec codec = hbaseClient.getSaltedKeyCodec(tableName);
+        TableName name = TableName.valueOf(tableName);
+
+        Table table = null;
+        RegionLocator locator = null;
+        Admin admin = null;
+        Path stagingDir = null;
+        boolean loaded = false;
+        try {
+            Connection connection = hbaseClient.getConnection();
+            Configuration hconf = connection.getConfiguration();
+            table = connection.getTable(name);
+            locator = connection.getRegionLocator(name);
+            admin = connection.getAdmin();
+
+            stagingDir = new Path(conf.getStagingDir(), name.getNameAsString().replace(':', '_') + "-" + begin);
+            report.setStagingDir(stagingDir.toString());
+
+            Path runDir = new Path(conf.getStagingDir(), name.getNameAsString().replace(':', '_') + "-" + begin + "-runs");
+            RegionHFileWriter writer = new RegionHFileWriter(hconf, stagingDir, runDir, table.getTableDescriptor(),
+                    locator.getStartKeys(), report);
+            byte[] now = Bytes.toBytes(begin);
+            try {
+                while (items.hasNext()) {
+                    Object item = items.next();
+                    if (puts) {
+                        Put put = (Put) item;
+                        for (List<Cell> cells : put.getFamilyCellMap().values()) {
+                            for (Cell cell : cells) {
+                                writer.add(toKeyValue(cell, codec, now));
+                            }
+                        }
+                    } else {
+                        writer.add(toKeyValue((Cell) item, codec, now));
+                    }
+                }
+                writer.close();
+            } finally {
+                writer.deleteRuns();
+            }
+            report.setWriteMillis(System.currentTimeMillis() - begin);
+
+            long loadBegin = System.currentTimeMillis();
+            createLoader(hconf).doBulkLoad(stagingDir, admin, table, locator);
+            report.setLoadMillis(System.currentTimeMillis() - loadBegin);
+            loaded = true;
+
+            if (conf.isDeleteStagingDir()) {
+                stagingDir.getFileSystem(hconf).delete(stagingDir, true);
+            }
+            return report;
+        } catch (IOException e) {
+            throw new HbaseComponentException("Error bulkLoad.  Cause: " + e, e);
+        } finally {
+            if (!loaded && stagingDir != null) {
+                logger.warn("bulk load of {} failed, hfiles are kept in {}", tableName, stagingDir);
+            }
+            closeQuietly(table);
+            closeQuietly(locator);
+            closeQuietly(admin);
+        }
+    }
+
+    private static KeyValue toKeyValue(Cell cell, SaltedKeyCodec codec, byte[] now) {
+        KeyValue kv = KeyValueUtil.ensureKeyValue(codec == null ? cell : codec.salt(cell));
+        kv.updateLatestStamp(now);
+        return kv;
+    }
+
+    private static LoadIncrementalHFiles createLoader(Configuration hconf) throws IOException {
+        try {
+            return new LoadIncrementalHFiles(hconf);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                logger.error("HFileBulkLoader close error :{}", e);
+            }
+        }
+    }
+
+
+    /**
+     * 按顺序逐个返回cell 结束时返回null
+     */
+    private interface SortedCells {
+
+        KeyValue next() throws IOException;
+    }
+
+    /**
+     * 按列族缓冲cell 满了之后排序写出临时文件 结束时归并、按region切开写HFile
+     * 一次都没写出临时文件时直接把内存里的cell按region切开写HFile
+     */
+    private class RegionHFileWriter {
+
+        private final Configuration hconf;
+
+        private final CacheConfig cacheConfig;
+
+        private final FileSystem fs;
+
+        private final Path stagingDir;
+
+        /**
+         * 临时文件的目录 不能放在stagingDir下面 LoadIncrementalHFiles会把子目录都当成列族
+         */
+        private final Path runDir;
+
+        private final HTableDescriptor descriptor;
+
+        /**
+         * 各region的startKey 第一个是空数组
+         */
+        private final byte[][] startKeys;
+
+        private final HFileBulkLoadReport report;
+
+        private final Map<byte[], List<KeyValue>> buffer = new TreeMap<byte[], List<KeyValue>>(Bytes.BYTES_COMPARATOR);
+
+        private long bufferedBytes = 0;
+
+        /**
+         * 列族 -> 写出的临时文件 每个文件内部有序
+         */
+        private final Map<byte[], List<Path>> runs = new TreeMap<byte[], List<Path>>(Bytes.BYTES_COMPARATOR);
+
+        private int runCount = 0;
+
+        /**
+         * 上一个cell的列族 连续同列族的cell不用再查TreeMap
+         */
+        private List<KeyValue> lastFamily;
+
+
+        RegionHFileWriter(Configuration hconf, Path stagingDir, Path runDir, HTableDescriptor descriptor,
+                          byte[][] startKeys, HFileBulkLoadReport report) throws IOException {
+            // 写HFile不需要block cache 和HFileOutputFormat2一样关掉
+            Configuration writeConf = new Configuration(hconf);
+            writeConf.setFloat(HConstants.HFILE_BLOCK_CACHE_SIZE_KEY, 0.0f);
+            this.hconf = writeConf;
+            this.cacheConfig = new CacheConfig(writeConf);
+            this.fs = stagingDir.getFileSystem(hconf);
+            this.stagingDir = stagingDir;
+            this.runDir = runDir;
+            this.descriptor = descriptor;
+            this.startKeys = startKeys;
+            this.report = report;
+        }
+
+        void add(KeyValue kv) throws IOException {
+            List<KeyValue> cells = lastFamily;
+            if (cells == null || !CellUtil.matchingFamily(cells.get(0), kv)) {
+                byte[] family = CellUtil.cloneFamily(kv);
+                cells = buffer.get(family);
+                if (cells == null) {
+                    if (!descriptor.hasFamily(family)) {
+                        throw new HbaseComponentException("column family " + Bytes.toString(family)
+                                + " does not exist in " + descriptor.getNameAsString());
+                    }
+                    cells = new ArrayList<KeyValue>();
+                    buffer.put(family, cells);
+                }
+            }
+            cells.add(kv);
+            lastFamily = cells;
+            report.addCell();
+
+            bufferedBytes += kv.heapSize();
+            if (bufferedBytes >= conf.getMaxBufferBytes()) {
+                spill();
+            }
+        }
+
+        void close() throws IOException {
+            if (runs.isEmpty()) {
+                for (Map.Entry<byte[], List<KeyValue>> entry : buffer.entrySet()) {
+                    List<KeyValue> cells = entry.getValue();
+                    Collections.sort(cells, KeyValue.COMPARATOR);
+                    final Iterator<KeyValue> iterator = cells.iterator();
+                    writeFamily(entry.getKey(), new SortedCells() {
+                        public KeyValue next() {
+                            return iterator.hasNext() ? iterator.next() : null;
+                        }
+                    });
+                }
+                clearBuffer();
+                return;
+            }
+
+            if (bufferedBytes > 0) {
+                spill();
+            }
+            for (Map.Entry<byte[], List<Path>> entry : runs.entrySet()) {
+                MergedRuns merged = new MergedRuns(entry.getValue());
+                try {
+                    writeFamily(entry.getKey(), merged);
+                } finally {
+                    merged.close();
+                }
+            }
+            logger.info("bulk load merged {} sorted runs of {}", runCount, descriptor.getNameAsString());
+        }
+
+        /**
+         * 删除临时文件 成功失败都要调用
+         */
+        void deleteRuns() {
+            if (runs.isEmpty()) {
+                return;
+            }
+            try {
+                fs.delete(runDir, true);
+            } catch (IOException e) {
+                logger.error("HFileBulkLoader delete runs error :{}", e);
+            }
+        }
+
+        /**
+         * 把缓冲的cell按列族排序后各写出一个临时文件
+         */
+        private void spill() throws IOException {
+            for (Map.Entry<byte[], List<KeyValue>> entry : buffer.entrySet()) {
+                List<KeyValue> cells = entry.getValue();
+                Collections.sort(cells, KeyValue.COMPARATOR);
+
+                Path run = new Path(new Path(runDir, Bytes.toString(entry.getKey())), "run-" + runCount++);
+                HFile.Writer writer = HFile.getWriterFactory(hconf, cacheConfig)
+                        .withPath(fs, run)
+                        .withComparator(KeyValue.COMPARATOR)
+                        .withFileContext(fileContext(descriptor.getFamily(entry.getKey())))
+                        .create();
+                try {
+                    for (KeyValue kv : cells) {
+                        writer.append(kv);
+                    }
+                } finally {
+                    writer.close();
+                }
+
+                List<Path> familyRuns = runs.get(entry.getKey());
+                if (familyRuns == null) {
+                    familyRuns = new ArrayList<Path>();
+                    runs.put(entry.getKey(), familyRuns);
+                }
+                familyRuns.add(run);
+            }
+            clearBuffer();
+        }
+
+        private void clearBuffer() {
+            buffer.clear();
+            lastFamily = null;
+            bufferedBytes = 0;
+        }
+
+        private void writeFamily(byte[] family, SortedCells cells) throws IOException {
+            HColumnDescriptor column = descriptor.getFamily(family);
+            Path familyDir = new Path(stagingDir, Bytes.toString(family));
+            fs.mkdirs(familyDir);
+
+            StoreFile.Writer writer = null;
+            byte[] regionEnd = null;
+            try {
+                for (KeyValue kv = cells.next(); kv != null; kv = cells.next()) {
+                    if (writer == null || (regionEnd != null && compareRow(kv, regionEnd) >= 0)) {
+                        closeWriter(writer);
+                        int region = regionIndex(kv);
+                        regionEnd = region + 1 < startKeys.length ? startKeys[region + 1] : null;
+                        writer = openWriter(column, familyDir);
+                    }
+                    writer.append(kv);
+                }
+            } finally {
+                closeWriter(writer);
+            }
+        }
+
+        private StoreFile.Writer openWriter(HColumnDescriptor column, Path familyDir) throws IOException {
+            return new StoreFile.WriterBuilder(hconf, cacheConfig, fs)
+                    .withOutputDir(familyDir)
+                    .withComparator(KeyValue.COMPARATOR)
+                    .withBloomType(column.getBloomFilterType())
+                    .withFileContext(fileContext(column))
+                    .build();
+        }
+
+        private HFileContext fileContext(HColumnDescriptor column) {
+            HFileContextBuilder contextBuilder = new HFileContextBuilder()
+                    .withCompression(column.getCompressionType())
+                    .withBlockSize(column.getBlocksize())
+                    .withDataBlockEncoding(column.getDataBlockEncoding());
+            if (HFile.getFormatVersion(hconf) >= HFile.MIN_FORMAT_VERSION_WITH_TAGS) {
+                contextBuilder.withIncludesTags(true);
+            }
+            return contextBuilder.build();
+        }
+
+        private void closeWriter(StoreFile.Writer writer) throws IOException {
+            if (writer == null) {
+                return;
+            }
+            writer.appendFileInfo(StoreFile.BULKLOAD_TIME_KEY, Bytes.toBytes(System.currentTimeMillis()));
+            writer.appendFileInfo(StoreFile.BULKLOAD_TASK_KEY, Bytes.toBytes("hutils"));
+            writer.appendFileInfo(StoreFile.MAJOR_COMPACTION_KEY, Bytes.toBytes(true));
+            writer.appendFileInfo(StoreFile.EXCLUDE_FROM_MINOR_COMPACTION_KEY, Bytes.toBytes(false));
+            writer.appendTrackedTimestampsToMetadata();
+            writer.close();
+            report.addHFile(fs.getFileStatus(writer.getPath()).getLen());
+        }
+
+        /**
+         * kv所在region的下标 startKeys[i] <= row < startKeys[i + 1]
+         */
+        private int regionIndex(KeyValue kv) {
+            int low = 0;
+            int high = startKeys.length - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (compareRow(kv, startKeys[mid]) >= 0) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+
+        private int compareRow(KeyValue kv, byte[] key) {
+            return Bytes.compareTo(kv.getRowArray(), kv.getRowOffset(), kv.getRowLength(), key, 0, key.length);
+        }
+
+        /**
+         * 一个列族的多个临时文件多路归并 每个文件只在内存里保留当前的一个cell
+         */
+        private class MergedRuns implements SortedCells, Closeable {
+
+            private final List<HFile.Reader> readers = new ArrayList<HFile.Reader>();
+
+            private final PriorityQueue<RunHead> heads;
+
+            MergedRuns(List<Path> paths) throws IOException {
+                heads = new PriorityQueue<RunHead>(Math.max(1, paths.size()), new Comparator<RunHead>() {
+                    public int compare(RunHead left, RunHead right) {
+                        int result = KeyValue.COMPARATOR.compare(left.current, right.current);
+                        // 相同的key按写出的先后 结果稳定
+                        return result != 0 ? result : left.order - right.order;
+                    }
+                });
+                try {
+                    for (int i = 0; i < paths.size(); i++) {
+                        HFile.Reader reader = HFile.createReader(fs, paths.get(i), cacheConfig, hconf);
+                        readers.add(reader);
+                        reader.loadFileInfo();
+                        HFileScanner scanner = reader.getScanner(false, false);
+                        if (scanner.seekTo()) {
+                            heads.add(new RunHead(scanner, KeyValueUtil.copyToNewKeyValue(scanner.getKeyValue()), i));
+                        }
+                    }
+                } catch (IOException e) {
+                    close();
+                    throw e;
+                }
+            }
+
+            public KeyValue next() throws IOException {
+                RunHead head = heads.poll();
+                if (head == null) {
+                    return null;
+                }
+                KeyValue kv = head.current;
+                if (head.scanner.next()) {
+                    // scanner返回的cell可能指向复用的块缓冲 拷贝一份
+                    head.current = KeyValueUtil.copyToNewKeyValue(head.scanner.getKeyValue());
+                    heads.add(head);
+                }
+                return kv;
+            }
+
+            public void close() {
+                for (HFile.Reader reader : readers) {
+                    try {
+                        reader.close(false);
+                    } catch (IOException e) {
+                        logger.error("HFileBulkLoader close run error :{}", e);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class RunHead {
+
+        private final HFileScanner scanner;
+
+        private KeyValue current;
+
+        private final int order;
+
+        RunHead(HFileScanner scanner, KeyValue current, int order) {
+            this.scanner = scanner;
+            this.current = current;
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.ebuer.hbase;
+
+import com.ebuer.conf.AsyncConf;
+import com.ebuer.util.NamedThreadFactory;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+
+/**
+ * HbaseClient的异步门面 dml操作返回CompletableFuture 在有界线程池上执行
+ * <p>
+ * 1、线程池和队列都是有界的，满了之后future直接以RejectedExecutionException失败，不会阻塞调用方
+ * 2、超时之后future以TimeoutException失败，调用方cancel future同样立即结束；还没开始的请求不再执行
+ * 3、已经在执行的请求不中断：hbase 1.2默认的RpcClientImpl在socket读写时被中断会关掉到这台regionserver的连接，
+ * 共享Connection上其他线程的请求会一起失败。执行中的请求由hbase自己的超时兜底，
+ * 建议在HbaseConf里把hbase.rpc.timeout/hbase.client.operation.timeout配置成不大于AsyncConf.timeoutMillis
+ * <p>
+ * example：
+ * CompletableFuture<Result> f1 = asyncClient.getRow("user", "rk_001");
+ * CompletableFuture<Result> f2 = asyncClient.getRow("user", "rk_002");
+ * CompletableFuture.allOf(f1, f2).join();
+ * <p>
+ * HbaseAsyncClient不负责关闭HbaseClient，只关闭自己的线程池
+ */
+public class HbaseAsyncClient implements Closeable, DisposableBean {
+
+    private final HbaseClient hbaseClient;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * 超时检测
+     */
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final long timeoutMillis;
+
+    private volatile boolean closed = false;
+
+
+    public HbaseAsyncClient(HbaseClient hbaseClient) {
+        this(hbaseClient, new AsyncConf());
+    }
+
+    public HbaseAsyncClient(HbaseClient hbaseClient, AsyncConf asyncConf) {
+        this.hbaseClient = hbaseClient;
+        this.timeoutMillis = asyncConf.getTimeoutMillis();
+
+        this.executor = new ThreadPoolExecutor(asyncConf.getCorePoolSize(),
+                asyncConf.getMaxPoolSize(),
+                asyncConf.getKeepAliveMillis(),
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(asyncConf.getQueueCapacity()),
+                new NamedThreadFactory("hbase-async"),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.timer = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("hbase-async-timer"));
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * 往tableName表中插入一行or更新一行
+     *
+     * @param tableName
+     * @param put
+     * @return
+     */
+    public CompletableFuture<Void> putRow(final String tableName, final Put put) {
+        return submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                hbaseClient.putRow(tableName, put);
+                return null;
+            }
+        }, timeoutMillis);
+    }
+
+    /**
+     * 往tableName表中插入多行or更新
+     *
+     * @param tableName
+     * @param puts
+     * @return
+     */
+    public CompletableFuture<Void> putRows(final String tableName, final List<Put> puts) {
+        return submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                hbaseClient.putRows(tableName, puts);
+                return null;
+            }
+        }, timeoutMillis);
+    }
+
+    /**
+     * 查询一行
+     *
+     * @param tableName
+     * @param rowKey
+     * @return
+     */
+    public CompletableFuture<Result> getRow(final String tableName, final String rowKey) {
+        return submit(new Callable<Result>() {
+            public Result call() throws Exception {
+                return hbaseClient.getRow(tableName, rowKey);
+            }
+        }, timeoutMillis);
+    }
+
+    /**
+     * 查询一行
+     *
+     * @param tableName
+     * @param get
+     * @return
+     */
+    public CompletableFuture<Result> getRow(final String tableName, final Get get) {
+        return submit(new Callable<Result>() {
+            public Result call() throws Exception {
+                return hbaseClient.getRow(tableName, get);
+            }
+        }, timeoutMillis);
+    }
+
+    /**
+     * 获取多行
+     *
+     * @param tableName
+     * @param gets
+     * @return
+     */
+    public CompletableFuture<Result[]> getRows(final String tableName, final List<Get> gets) {
+        return submit(new Callable<Result[]>() {
+            public Result[] call() throws Exception {
+                return hbaseClient.getRows(tableName, gets);
+            }
+        }, timeoutMillis);
+    }
+
+    /**
+     * 删除一行
+     *
+     * @param tableName
+     * @param delete
+     * @return
+     */
+    public CompletableFuture<Void> deleteRow(final String tableName, final Delete delete) {
+        return submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                hbaseClient.deleteRow(tableName, delete);
+                return null;
+            }
+        }, timeoutMillis);
+    }
+
+    /**
+     * 删除多行
+     *
+     * @param tableName
+     * @param deletes
+     * @return
+     */
+    public CompletableFuture<Void> deleteRows(final String tableName, final List<Delete> deletes) {
+        return submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                hbaseClient.deleteRows(tableName, deletes);
+                return null;
+            }
+        }, timeoutMillis);
+    }
+
+    /**
+     * 在线程池上执行任意操作 可以单独指定超时
+     *
+     * @param call
+     * @param timeoutMillis <=0表示不超时
+     * @return
+     */
+    public <T> CompletableFuture<T> submit(final Callable<T> call, final long timeoutMillis) {
+        final CompletableFuture<T> result = new CompletableFuture<T>();
+
+        final Future<?> task;
+        try {
+            task = executor.submit(new Runnable() {
+                public void run() {
+                    if (result.isDone()) {
+                        return;
+                    }
+                    if (closed) {
+                        result.completeExceptionally(new RejectedExecutionException("HbaseAsyncClient has been closed"));
+                        return;
+                    }
+                    try {
+                        result.complete(call.call());
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        if (timeoutMillis > 0) {
+            final ScheduledFuture<?> timeout = timer.schedule(new Runnable() {
+                public void run() {
+                    result.completeExceptionally(new TimeoutException("hbase async operation timeout after " + timeoutMillis + "ms"));
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+
+            result.whenComplete(new BiConsumer<T, Throwable>() {
+                public void accept(T value, Throwable e) {
+                    timeout.cancel(false);
+                }
+            });
+        }
+
+        // 超时或者被调用方cancel 还在队列里的请求不再执行 执行中的不中断
+        result.whenComplete(new BiConsumer<T, Throwable>() {
+            public void accept(T value, Throwable e) {
+                if (e != null && !task.isDone()) {
+                    task.cancel(false);
+                }
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * 关闭线程池 未执行的请求以RejectedExecutionException失败 执行中的请求不中断 原因见类注释
+     */
+    public void close() {
+        closed = true;
+        timer.shutdownNow();
+        executor.shutdown();
+    }
+
+    public void destroy() throws Exception {
+        close();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+}
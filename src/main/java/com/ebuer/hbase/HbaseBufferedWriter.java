@@ -0,0 +1,172 @@
+package com.ebuer.hbase;
+
+import com.ebuer.conf.MutatorConf;
+import com.ebuer.exception.HbaseComponentException;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于BufferedMutator的异步写 线程安全 一张表一个实例 由HbaseClient创建和关闭
+ * <p>
+ * 持久性说明：
+ * 1、mutate() 只是放进客户端缓冲区就返回，此时数据还没有到regionserver，进程挂了会丢
+ * 2、缓冲区满或者定时flush时后台提交，失败的mutation重试耗尽后回调MutationFailureListener
+ * 3、flush() 返回表示之前mutate的数据都已经被regionserver确认；
+ * 如果自上次flush()以来有mutation失败(包括后台提交失败的)，flush()抛HbaseComponentException
+ * 4、close() 等同于最后一次flush() 然后释放资源
+ */
+public class HbaseBufferedWriter implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(HbaseBufferedWriter.class);
+
+    private final String tableName;
+
+    private final BufferedMutator mutator;
+
+    /**
+     * 自上次显式flush以来失败的条数
+     */
+    private final AtomicLong failedSinceFlush = new AtomicLong();
+
+    /**
+     * 累计失败条数
+     */
+    private final AtomicLong failedTotal = new AtomicLong();
+
+    private volatile boolean closed = false;
+
+
+    HbaseBufferedWriter(final String tableName, Connection connection, MutatorConf conf,
+                        final MutationFailureListener listener) throws IOException {
+        this.tableName = tableName;
+
+        BufferedMutatorParams params = new BufferedMutatorParams(TableName.valueOf(tableName))
+                .writeBufferSize(conf.getWriteBufferSize())
+                .listener(new BufferedMutator.ExceptionListener() {
+                    public void onException(RetriesExhaustedWithDetailsException e, BufferedMutator mutator) {
+                        for (int i = 0; i < e.getNumExceptions(); i++) {
+                            failedSinceFlush.incrementAndGet();
+                            failedTotal.incrementAndGet();
+                            if (listener != null) {
+                                try {
+                                    listener.onFailure(tableName, e.getRow(i), e.getCause(i), e.getHostnamePort(i));
+                                } catch (RuntimeException le) {
+                                    logger.error("HbaseBufferedWriter listener error :{}", le);
+                                }
+                            } else {
+                                logger.error("HbaseBufferedWriter mutation failed, table:" + tableName
+                                        + " server:" + e.getHostnamePort(i), e.getCause(i));
+                            }
+                        }
+                    }
+                });
+        if (conf.getMaxKeyValueSize() > 0) {
+            params.maxKeyValueSize(conf.getMaxKeyValueSize());
+        }
+
+        this.mutator = connection.getBufferedMutator(params);
+    }
+
+    /**
+     * 异步写入一个Put/Delete 放入缓冲区即返回
+     *
+     * @param mutation
+     */
+    public void mutate(Mutation mutation) {
+        checkOpen();
+        try {
+            mutator.mutate(mutation);
+        } catch (IOException e) {
+            throw new HbaseComponentException("Error mutate.  Cause: " + e, e);
+        }
+    }
+
+    /**
+     * 异步写入一批Put/Delete 放入缓冲区即返回
+     *
+     * @param mutations
+     */
+    public void mutate(List<? extends Mutation> mutations) {
+        checkOpen();
+        try {
+            mutator.mutate(mutations);
+        } catch (IOException e) {
+            throw new HbaseComponentException("Error mutate.  Cause: " + e, e);
+        }
+    }
+
+    /**
+     * 把缓冲区的数据全部提交并等待确认
+     * 自上次flush以来有失败的mutation时抛异常 失败明细已经通过MutationFailureListener回调
+     */
+    public void flush() {
+        try {
+            mutator.flush();
+        } catch (IOException e) {
+            throw new HbaseComponentException("Error flush.  Cause: " + e, e);
+        }
+
+        long failed = failedSinceFlush.getAndSet(0);
+        if (failed > 0) {
+            throw new HbaseComponentException(failed + " mutations of table " + tableName + " failed since last flush");
+        }
+    }
+
+    /**
+     * 定时flush用 不重置失败计数 失败留给调用方显式flush时感知
+     */
+    void periodicFlush() {
+        if (closed) {
+            return;
+        }
+        try {
+            mutator.flush();
+        } catch (IOException e) {
+            logger.error("HbaseBufferedWriter periodic flush error :{}", e);
+        }
+    }
+
+    /**
+     * flush之后关闭 同flush一样有失败时抛异常 但资源一定会释放
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+        } finally {
+            try {
+                mutator.close();
+            } catch (IOException e) {
+                logger.error("HbaseBufferedWriter close error :{}", e);
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new HbaseComponentException("HbaseBufferedWriter of table " + tableName + " has been closed");
+        }
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public long getWriteBufferSize() {
+        return mutator.getWriteBufferSize();
+    }
+
+    public long getFailedTotal() {
+        return failedTotal.get();
+    }
+}
@@ -1,19 +1,51 @@
 package com.ebuer.hbase;
 
+import com.ebuer.conf.CircuitBreakerConf;
+import com.ebuer.conf.GetBatchConf;
+import com.ebuer.conf.HFileBulkLoadConf;
 import com.ebuer.conf.HbaseConf;
+import com.ebuer.conf.MutatorConf;
+import com.ebuer.conf.ParallelScanConf;
+import com.ebuer.conf.RetryConf;
+import com.ebuer.conf.RoutedWriteConf;
+import com.ebuer.conf.RowCacheConf;
+import com.ebuer.conf.ScanConf;
+import com.ebuer.conf.TraceConf;
+import com.ebuer.exception.CircuitBreakerOpenException;
 import com.ebuer.exception.HbaseComponentException;
+import com.ebuer.metrics.MetricsRegistry;
+import com.ebuer.resilience.CircuitBreaker;
+import com.ebuer.resilience.RetryPolicy;
+import com.ebuer.trace.OperationContext;
+import com.ebuer.trace.OperationListener;
+import com.ebuer.trace.OperationTracer;
+import com.ebuer.util.NamedThreadFactory;
 import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 /**
  * 原生的 hbase 的ddl & dml操作
@@ -52,39 +84,250 @@ import java.util.List;
  * 1、建议在 spring中注入 HbaseLocalConf对象
  * 2、如果你没有用spring 那么请用传入合适的HbaseLocalConf
  *
+ * 生命周期___________
+ * HbaseClient内部持有一个重量级的、线程安全的Connection，整个客户端共享；
+ * Table和Admin都是轻量级对象，每次调用从Connection上获取，用完即关，不会关闭Connection。
+ * 1、start() 显式建立Connection，不调用的话第一次使用时会自动建立
+ * 2、close() 关闭Connection，spring中作为DisposableBean 容器销毁时自动调用
+ *
+ * 异步写___________
+ * mutate(tableName, put/delete) 基于BufferedMutator，放进缓冲区即返回，适合高频写入；
+ * 持久性以flush()/close()为准，详见HbaseBufferedWriter
+ *
+ * get合并___________
+ * 设置了GetBatchConf之后，getRow会把同一张表的并发单行get合并成一次批量get，详见GetCoalescer
+ *
+ * 扫描___________
+ * scan(tableName, scan, visitor) 逐行回调，openScanner/streamRows 返回需要close的流式扫描，
+ * 都是边扫边读，内存占用只和ScanConf的caching/maxResultSize有关，和扫描范围无关；
+ * 大范围扫描可以用parallelScan按region并行扫描
+ *
+ * 行缓存___________
+ * 设置了RowCacheConf之后，getRow先查客户端缓存，本客户端的put/delete会让对应行失效，详见RowCache
+ *
+ * 指标___________
+ * 每个表的每种操作都记录次数、失败次数、延迟分布和批量大小，默认导出到JMX的com.ebuer.hutils域，
+ * setMetricsRegistry可以换成自己的实现，详见DefaultMetricsRegistry
+ *
+ * 慢操作和tracing___________
+ * 超过TraceConf.slowOperationMillis的操作打warn日志，带表名、rowkey、批量大小和connect/execute分阶段耗时；
+ * addOperationListener可以在每次操作前后挂自己的tracing span，详见OperationListener
+ *
+ * 预分区和加盐___________
+ * createTable(tableName, SplitStrategy, family...) 建表时预分区；SplitStrategy.salted(n)建的表或者
+ * registerSaltedTable登记过的表，put/get/delete/scan自动加盐，调用方始终使用原rowkey，详见SaltedKeyCodec
+ *
+ * 重试和熔断___________
+ * 默认关闭，设置RetryConf.maxAttempts>1后，get/put和幂等的delete遇到可恢复的IOException(region迁移、超时等)
+ * 按RetryConf指数退避重试，重试总量受预算限制；只删最新版本(addColumn不带时间戳)的delete、increment和带回调的scan不重试。
+ * 打开CircuitBreakerConf.enabled后每个表一个熔断器，连续失败后直接抛CircuitBreakerOpenException，
+ * 状态导出到JMX的type=CircuitBreaker，详见RetryPolicy、CircuitBreaker
+ *
+ * 离线导入___________
+ * 上亿行的回灌用bulkLoad，数据写成HFile直接加载到region，不占用regionserver的memstore和WAL，详见HFileBulkLoader
+ *
  * @author xu.qiang
  * @date 2016/12/30.
  */
-public class HbaseClient {
+public class HbaseClient implements Closeable, DisposableBean {
 
     private static final Logger logger = LoggerFactory.getLogger(HbaseClient.class);
 
     private HbaseConf hbaseConf;
 
+    /**
+     * 整个客户端共享的连接 线程安全 由start()/close()管理
+     */
+    private volatile Connection connection;
+
+    private volatile boolean closed = false;
+
+    /**
+     * 异步写的配置
+     */
+    private MutatorConf mutatorConf = new MutatorConf();
+
+    /**
+     * 异步写失败的回调 为空时只打日志
+     */
+    private MutationFailureListener mutationFailureListener;
+
+    /**
+     * 每张表一个异步写
+     */
+    private final ConcurrentMap<String, HbaseBufferedWriter> bufferedWriters = new ConcurrentHashMap<String, HbaseBufferedWriter>();
+
+    /**
+     * 异步写定时flush
+     */
+    private ScheduledExecutorService flushScheduler;
+
+    /**
+     * get合并的配置 为空表示不合并
+     */
+    private GetBatchConf getBatchConf;
+
+    private volatile GetCoalescer getCoalescer;
+
+    /**
+     * 行缓存 为空表示不缓存
+     */
+    private volatile RowCache rowCache;
+
+    /**
+     * 扫描的默认参数
+     */
+    private ScanConf scanConf = new ScanConf();
+
+    /**
+     * 加盐的表 表名 -> 编解码
+     */
+    private final ConcurrentMap<String, SaltedKeyCodec> saltedTables = new ConcurrentHashMap<String, SaltedKeyCodec>();
+
+    /**
+     * 按regionserver分组写入的配置
+     */
+    private RoutedWriteConf routedWriteConf = new RoutedWriteConf();
+
+    /**
+     * 按regionserver分组写入的线程池 第一次使用时创建
+     */
+    private volatile ExecutorService routedWriteExecutor;
+
+    /**
+     * 操作指标、慢操作日志和OperationListener回调
+     */
+    private final OperationTracer tracer = new OperationTracer();
+
+    /**
+     * 幂等操作的重试 所有表共享预算
+     */
+    private volatile RetryPolicy retryPolicy = new RetryPolicy(new RetryConf());
+
+    /**
+     * 熔断器的配置 对之后第一次访问的表生效
+     */
+    private CircuitBreakerConf circuitBreakerConf = new CircuitBreakerConf();
+
+    /**
+     * 表名 -> 熔断器
+     */
+    private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<String, CircuitBreaker>();
+
 
     public HbaseClient(HbaseConf hbaseConf) {
         this.hbaseConf = hbaseConf;
     }
 
+    /**
+     * 建立共享的Connection 重复调用无副作用
+     *
+     * @throws IOException
+     */
+    public synchronized void start() throws IOException {
+        if (closed) {
+            throw new HbaseComponentException("HbaseClient has been closed");
+        }
+        if (connection == null) {
+            long begin = System.nanoTime();
+            boolean success = false;
+            try {
+                connection = ConnectionFactory.createConnection(hbaseConf.getHbaseConf());
+                success = true;
+            } finally {
+                record("*", "connect", begin, 0, success);
+            }
+        }
+    }
+
+    /**
+     * 关闭共享的Connection 关闭之后客户端不可再用
+     * 关闭前会先flush并关闭所有异步写
+     *
+     * @throws IOException
+     */
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        if (flushScheduler != null) {
+            flushScheduler.shutdownNow();
+        }
+        for (HbaseBufferedWriter writer : bufferedWriters.values()) {
+            try {
+                writer.close();
+            } catch (HbaseComponentException e) {
+                logger.error("HbaseClient close bufferedWriter error :{}", e);
+            }
+        }
+        bufferedWriters.clear();
+
+        if (getCoalescer != null) {
+            getCoalescer.close();
+            getCoalescer = null;
+        }
+
+        if (routedWriteExecutor != null) {
+            routedWriteExecutor.shutdownNow();
+        }
+
+        if (connection != null) {
+            try {
+                connection.close();
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    /**
+     * spring容器销毁时回调
+     *
+     * @throws Exception
+     */
+    public void destroy() throws Exception {
+        close();
+    }
+
+    /**
+     * 获取共享的Connection 如果还没有start 则在这里建立
+     * 注意：调用方不要关闭这个Connection
+     *
+     * @return
+     * @throws IOException
+     */
+    public Connection getConnection() throws IOException {
+        Connection current = connection;
+        if (current == null) {
+            start();
+            current = connection;
+        }
+        if (current == null || closed) {
+            throw new HbaseComponentException("HbaseClient has been closed");
+        }
+        return current;
+    }
+
     /**
      * 获取Admin
      *
      * @return
      */
     public Admin getAdmin() throws IOException {
-        Connection connection = ConnectionFactory.createConnection(hbaseConf.getHbaseConf());
-        return connection.getAdmin();
+        return getConnection().getAdmin();
     }
 
     /**
-     * 释放资源
+     * 释放资源 只关闭admin 共享的connection不受影响
      *
      * @param admin
      */
     public void releaseAdmin(Admin admin) {
         try {
             if (admin != null) {
-                admin.close();//内部会把connection也给关闭了的 不需要重复关闭connection
+                admin.close();
             }
         } catch (IOException e) {
             logger.error("HbaseClient releaseAdmin error :{}", e);
@@ -100,21 +343,18 @@ public class HbaseClient {
      * @throws IOException
      */
     public Table getHTable(String tableName) throws IOException {
-        Connection connection = ConnectionFactory.createConnection(hbaseConf.getHbaseConf());
-
-        return connection.getTable(TableName.valueOf(tableName));
+        return getConnection().getTable(TableName.valueOf(tableName));
     }
 
     /**
-     * 释放资源
+     * 释放资源 只关闭table 共享的connection不受影响
      *
      * @param table
      */
     public void releaseTable(Table table) {
         try {
-            table.close();
             if (table != null) {
-                table.close();//内部会把connection也给关闭了的 不需要重复关闭connection
+                table.close();
             }
         } catch (IOException e) {
             logger.error("HbaseClient releaseTable error :{}", e);
@@ -129,21 +369,62 @@ public class HbaseClient {
      * @param tableName
      * @param columnFamily
      */
-    public boolean createTable(final String tableName, final String... columnFamily) {
+    public boolean createTable(String tableName, String... columnFamily) {
+        return createTable(tableName, null, ColumnFamilySpec.defaults(columnFamily));
+    }
+
+    /**
+     * 创建表 列族带压缩/编码/布隆过滤器/TTL等参数
+     *
+     * @param tableName
+     * @param columnFamily
+     */
+    public boolean createTable(String tableName, ColumnFamilySpec... columnFamily) {
+        return createTable(tableName, null, columnFamily);
+    }
+
+    /**
+     * 创建预分区的表 SplitStrategy.salted(n)建的表会自动登记为加盐表
+     *
+     * @param tableName
+     * @param splitStrategy 分区方式
+     * @param columnFamily
+     */
+    public boolean createTable(String tableName, SplitStrategy splitStrategy, String... columnFamily) {
+        return createTable(tableName, splitStrategy, ColumnFamilySpec.defaults(columnFamily));
+    }
+
+    /**
+     * 创建预分区的表 列族带调优参数 SplitStrategy.salted(n)建的表会自动登记为加盐表
+     *
+     * @param tableName
+     * @param splitStrategy 分区方式 为空表示不预分区
+     * @param columnFamily
+     */
+    public boolean createTable(final String tableName, final SplitStrategy splitStrategy, final ColumnFamilySpec... columnFamily) {
         try {
-            return this.executeAdminAction(new AdminAction<Boolean>() {
+            boolean created = this.executeAdminAction("createTable", tableName, new AdminAction<Boolean>() {
                 public Boolean excute(HBaseAdmin admin) throws IOException {
 
                     HTableDescriptor tableDescriptor = new HTableDescriptor(TableName.valueOf(tableName));
 
-                    for (String family : columnFamily) {
-                        tableDescriptor.addFamily(new HColumnDescriptor(family));
+                    for (ColumnFamilySpec family : columnFamily) {
+                        tableDescriptor.addFamily(family.toDescriptor());
                     }
 
-                    admin.createTable(tableDescriptor);
+                    byte[][] splitKeys = splitStrategy == null ? null : splitStrategy.getSplitKeys();
+                    if (splitKeys == null || splitKeys.length == 0) {
+                        admin.createTable(tableDescriptor);
+                    } else {
+                        admin.createTable(tableDescriptor, splitKeys);
+                    }
                     return true;
                 }
             });
+            if (splitStrategy != null && splitStrategy.getSaltBuckets() > 0) {
+                registerSaltedTable(tableName, splitStrategy.getSaltBuckets());
+            }
+            return created;
         } catch (IOException e) {
             throw new HbaseComponentException("Error createTable.  Cause: " + e, e);
         }
@@ -156,7 +437,7 @@ public class HbaseClient {
      */
     public boolean dropTable(final String... tableName) {
         try {
-            return this.executeAdminAction(new AdminAction<Boolean>() {
+            return this.executeAdminAction("dropTable", "*", new AdminAction<Boolean>() {
                 public Boolean excute(HBaseAdmin admin) throws IOException {
                     for (String table : tableName) {
                         admin.disableTable(table);
@@ -177,7 +458,7 @@ public class HbaseClient {
      */
     public boolean existsTable(final String tableName) {
         try {
-            return this.executeAdminAction(new AdminAction<Boolean>() {
+            return this.executeAdminAction("existsTable", tableName, new AdminAction<Boolean>() {
                 public Boolean excute(HBaseAdmin admin) throws IOException {
                     return admin.tableExists(tableName);
                 }
@@ -196,7 +477,7 @@ public class HbaseClient {
      */
     public TableName[] listTables(final String regx) {
         try {
-            return this.executeAdminAction(new AdminAction<TableName[]>() {
+            return this.executeAdminAction("listTables", "*", new AdminAction<TableName[]>() {
                 public TableName[] excute(HBaseAdmin admin) throws IOException {
                     if (StringUtils.isBlank(regx)) {
                         return admin.listTableNames();
@@ -218,12 +499,23 @@ public class HbaseClient {
      * @param familys
      * @return
      */
-    public boolean addColumnFamily(final String tableName, final String... familys) {
+    public boolean addColumnFamily(String tableName, String... familys) {
+        return addColumnFamily(tableName, ColumnFamilySpec.defaults(familys));
+    }
+
+    /**
+     * 新增列族 带调优参数
+     *
+     * @param tableName
+     * @param familys
+     * @return
+     */
+    public boolean addColumnFamily(final String tableName, final ColumnFamilySpec... familys) {
         try {
-            return this.executeAdminAction(new AdminAction<Boolean>() {
+            return this.executeAdminAction("addColumnFamily", tableName, new AdminAction<Boolean>() {
                 public Boolean excute(HBaseAdmin admin) throws IOException {
-                    for (String family : familys) {
-                        admin.addColumn(tableName, new HColumnDescriptor(family));
+                    for (ColumnFamilySpec family : familys) {
+                        admin.addColumn(TableName.valueOf(tableName), family.toDescriptor());
                     }
                     return true;
                 }
@@ -233,6 +525,35 @@ public class HbaseClient {
         }
     }
 
+    /**
+     * 修改已有列族的参数 只覆盖spec里设置了的项 其余保持原值
+     * 压缩/编码的修改对之后新写的HFile生效，存量数据在major compact之后生效
+     *
+     * @param tableName
+     * @param familys
+     * @return
+     */
+    public boolean modifyColumnFamily(final String tableName, final ColumnFamilySpec... familys) {
+        try {
+            return this.executeAdminAction("modifyColumnFamily", tableName, new AdminAction<Boolean>() {
+                public Boolean excute(HBaseAdmin admin) throws IOException {
+                    TableName table = TableName.valueOf(tableName);
+                    HTableDescriptor tableDescriptor = admin.getTableDescriptor(table);
+                    for (ColumnFamilySpec family : familys) {
+                        HColumnDescriptor descriptor = tableDescriptor.getFamily(Bytes.toBytes(family.getName()));
+                        if (descriptor == null) {
+                            throw new HbaseComponentException("column family " + family.getName() + " not exists in " + tableName);
+                        }
+                        admin.modifyColumn(table, family.applyTo(descriptor));
+                    }
+                    return true;
+                }
+            });
+        } catch (IOException e) {
+            throw new HbaseComponentException("Error modifyColumnFamily.  Cause: " + e, e);
+        }
+    }
+
     /**
      * 删除列族
      *
@@ -242,7 +563,7 @@ public class HbaseClient {
      */
     public boolean deleteColumnFamily(final String tableName, final String... familys) {
         try {
-            return this.executeAdminAction(new AdminAction<Boolean>() {
+            return this.executeAdminAction("deleteColumnFamily", tableName, new AdminAction<Boolean>() {
                 public Boolean excute(HBaseAdmin admin) throws IOException {
                     for (String family : familys) {
                         admin.deleteColumn(tableName, family);
@@ -265,16 +586,19 @@ public class HbaseClient {
      * @param put
      * @return
      */
-    public boolean putRow(String tableName, final Put put) {
+    public boolean putRow(final String tableName, final Put put) {
         try {
-            return this.executeTableAction(tableName, new TableAction<Boolean>() {
+            return this.executeTableAction("putRow", tableName, put.getRow(), 1, new TableAction<Boolean>() {
                 public Boolean excute(Table table) throws IOException {
-                    table.put(put);
+                    SaltedKeyCodec codec = saltedTables.get(tableName);
+                    table.put(codec == null ? put : codec.salt(put));
                     return true;
                 }
             });
         } catch (IOException e) {
             throw new HbaseComponentException("Error putRow.  Cause: " + e, e);
+        } finally {
+            invalidateCache(tableName, put);
         }
     }
 
@@ -285,10 +609,11 @@ public class HbaseClient {
      * @param puts
      * @return
      */
-    public boolean putRows(String tableName, final List<Put> puts) {
+    public boolean putRows(final String tableName, final List<Put> rows) {
         try {
-            return this.executeTableAction(tableName, new TableAction<Boolean>() {
+            return this.executeTableAction("putRows", tableName, null, rows.size(), new TableAction<Boolean>() {
                 public Boolean excute(Table table) throws IOException {
+                    List<Put> puts = saltPuts(tableName, rows);
                     if (puts.size() <= 2048) {
                         table.put(puts);
                         return true;
@@ -303,90 +628,286 @@ public class HbaseClient {
                             realPuts = new ArrayList<Put>(2048);
                         }
                     }
+                    if (!realPuts.isEmpty()) {
+                        table.put(realPuts);
+                    }
                     return true;
                 }
             });
         } catch (IOException e) {
             throw new HbaseComponentException("Error putRows.  Cause: " + e, e);
+        } finally {
+            invalidateCache(tableName, rows);
+        }
+
+    }
+
+    /**
+     * 按目标regionserver分组并行写入 失败时只重试失败的行
+     * 和putRows相比，一个慢server只拖慢自己那组，适合大批量写宽表
+     *
+     * @param tableName
+     * @param puts
+     * @return 每个regionserver的行数和耗时
+     * @throws com.ebuer.exception.HbaseWriteException 重试maxAttempts轮之后仍有行失败 或有不可重试的行
+     * @throws com.ebuer.exception.CircuitBreakerOpenException 表的熔断器打开
+     */
+    public RoutedWriteReport putRowsByServer(String tableName, List<Put> puts) {
+        OperationContext context = tracer.begin(tableName, "putRowsByServer", null, puts.size());
+        boolean success = false;
+        try {
+            RegionRoutedWriter writer = new RegionRoutedWriter(this, tableName, routedWriteConf, getRoutedWriteExecutor(),
+                    saltedTables.get(tableName), getCircuitBreaker(tableName));
+            RoutedWriteReport report = writer.write(puts);
+            success = true;
+            return report;
+        } catch (IOException e) {
+            context.fail(e);
+            throw new HbaseComponentException("Error putRowsByServer.  Cause: " + e, e);
+        } catch (RuntimeException e) {
+            context.fail(e);
+            throw e;
+        } finally {
+            tracer.end(context, success);
+            invalidateCache(tableName, puts);
+        }
+    }
+
+    /**
+     * 离线导入 在本地排序、按region切开写成HFile后直接加载 不经过memstore和WAL 适合大批量回灌
+     * 导入完成后清空行缓存，详见HFileBulkLoader
+     * 需要classpath上有hbase-server(pom里是optional 不会传递依赖)
+     *
+     * @param tableName
+     * @param puts      不需要有序
+     * @param conf
+     * @return
+     */
+    public HFileBulkLoadReport bulkLoad(String tableName, Iterable<Put> puts, HFileBulkLoadConf conf) {
+        long begin = System.nanoTime();
+        boolean success = false;
+        try {
+            HFileBulkLoadReport report = new HFileBulkLoader(this, conf).load(tableName, puts);
+            success = true;
+            return report;
+        } finally {
+            record(tableName, "bulkLoad", begin, 0, success);
+            RowCache cache = rowCache;
+            if (cache != null) {
+                cache.clear();
+            }
         }
+    }
 
+    private ExecutorService getRoutedWriteExecutor() {
+        ExecutorService executor = routedWriteExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw new HbaseComponentException("HbaseClient has been closed");
+                }
+                executor = routedWriteExecutor;
+                if (executor == null) {
+                    executor = Executors.newFixedThreadPool(routedWriteConf.getParallelism(),
+                            new NamedThreadFactory("hbase-routed-write", true));
+                    routedWriteExecutor = executor;
+                }
+            }
+        }
+        return executor;
     }
 
     /**
-     * 删除一行
+     * 删除一行 只删最新版本的delete不重试
      *
      * @param tableName
      * @param delete
      * @return
      */
-    public boolean deleteRow(String tableName, final Delete delete) {
+    public boolean deleteRow(final String tableName, final Delete delete) {
         try {
-            return this.executeTableAction(tableName, new TableAction<Boolean>() {
+            return this.executeTableAction("deleteRow", tableName, delete.getRow(), 1, isIdempotent(delete), new TableAction<Boolean>() {
                 public Boolean excute(Table table) throws IOException {
-                    table.delete(delete);
+                    SaltedKeyCodec codec = saltedTables.get(tableName);
+                    table.delete(codec == null ? delete : codec.salt(delete));
                     return true;
                 }
             });
         } catch (IOException e) {
             throw new HbaseComponentException("Error deleteRow.  Cause: " + e, e);
+        } finally {
+            invalidateCache(tableName, delete);
         }
 
     }
 
     /**
-     * 删除一行
+     * 删除多行 其中有只删最新版本的delete时整批不重试
      *
      * @param tableName
      * @param deletes
      * @return
      */
-    public boolean deleteRows(String tableName, final List<Delete> deletes) {
+    public boolean deleteRows(final String tableName, final List<Delete> deletes) {
+        // table.delete会把成功的delete从list中移除 先留一份用于缓存失效
+        List<Delete> invalidates = rowCache == null ? null : new ArrayList<Delete>(deletes);
         try {
-            return this.executeTableAction(tableName, new TableAction<Boolean>() {
+            boolean idempotent = true;
+            for (Delete delete : deletes) {
+                idempotent &= isIdempotent(delete);
+            }
+            return this.executeTableAction("deleteRows", tableName, null, deletes.size(), idempotent, new TableAction<Boolean>() {
                 public Boolean excute(Table table) throws IOException {
-                    table.delete(deletes);
+                    SaltedKeyCodec codec = saltedTables.get(tableName);
+                    if (codec == null) {
+                        table.delete(deletes);
+                        return true;
+                    }
+                    List<Delete> salted = new ArrayList<Delete>(deletes.size());
+                    for (Delete delete : deletes) {
+                        salted.add(codec.salt(delete));
+                    }
+                    table.delete(salted);
                     return true;
                 }
             });
         } catch (IOException e) {
             throw new HbaseComponentException("Error deleteRows.  Cause: " + e, e);
+        } finally {
+            invalidateCache(tableName, invalidates);
         }
     }
 
     /**
-     * 查询一行
+     * delete能否安全重试：不带时间戳的addColumn只删最新的一个版本，第一次其实已经生效时重试会再删掉一个版本；
+     * 整行、整个列族、全部版本以及指定了时间戳的删除重复执行结果一样
      *
-     * @param tableName
-     * @param rowKey
+     * @param delete
      * @return
      */
-    public Result getRow(String tableName, final String rowKey) {
+    private static boolean isIdempotent(Delete delete) {
+        for (List<Cell> cells : delete.getFamilyCellMap().values()) {
+            for (Cell cell : cells) {
+                if (cell.getTypeByte() == KeyValue.Type.Delete.getCode()
+                        && cell.getTimestamp() == HConstants.LATEST_TIMESTAMP) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 原子累加 不是幂等操作 失败时不重试，调用方要自己确认是否已经生效
+     *
+     * @param tableName
+     * @param increment
+     * @return 累加之后的值
+     */
+    public Result increment(final String tableName, final Increment increment) {
+        final SaltedKeyCodec codec = saltedTables.get(tableName);
         try {
-            return this.executeTableAction(tableName, new TableAction<Result>() {
+            Result result = this.executeTableAction("increment", tableName, increment.getRow(), 1, false, new TableAction<Result>() {
                 public Result excute(Table table) throws IOException {
-                    Get get = new Get(Bytes.toBytes(rowKey));
-                    return table.get(get);
+                    return table.increment(codec == null ? increment : codec.salt(increment));
                 }
             });
+            return codec == null ? result : codec.unsalt(result);
         } catch (IOException e) {
-            throw new HbaseComponentException("Error getRow.  Cause: " + e, e);
+            throw new HbaseComponentException("Error increment.  Cause: " + e, e);
+        } finally {
+            invalidateCache(tableName, increment);
         }
     }
 
+    /**
+     * 单列原子累加 不重试
+     *
+     * @param tableName
+     * @param rowKey
+     * @param family
+     * @param qualifier
+     * @param amount
+     * @return 累加之后的值
+     */
+    public long increment(String tableName, String rowKey, String family, String qualifier, long amount) {
+        byte[] familyBytes = Bytes.toBytes(family);
+        byte[] qualifierBytes = Bytes.toBytes(qualifier);
+        Increment increment = new Increment(Bytes.toBytes(rowKey));
+        increment.addColumn(familyBytes, qualifierBytes, amount);
+        Result result = increment(tableName, increment);
+        return Bytes.toLong(result.getValue(familyBytes, qualifierBytes));
+    }
+
+    /**
+     * 查询一行
+     *
+     * @param tableName
+     * @param rowKey
+     * @return
+     */
+    public Result getRow(String tableName, final String rowKey) {
+        return getRow(tableName, new Get(Bytes.toBytes(rowKey)));
+    }
+
     /**
      * 查询一行
+     * 开启了行缓存时先查缓存；开启了get合并时会和其他线程的并发get合并成一次批量get
      *
      * @param tableName
      * @param get
      * @return
      */
     public Result getRow(String tableName, final Get get) {
+        RowCache cache = rowCache;
+        RowCache.CacheKey cacheKey = cache == null ? null : cache.keyOf(tableName, get);
+        if (cacheKey == null) {
+            return loadRow(tableName, get);
+        }
+
+        long begin = System.nanoTime();
+        Result cached = cache.get(cacheKey);
+        if (cached != null) {
+            record(tableName, "getRow.cached", begin, 1, true);
+            return cached;
+        }
+        long epoch = cache.epoch(cacheKey);
+        Result result = loadRow(tableName, get);
+        cache.put(cacheKey, result, epoch);
+        return result;
+    }
+
+    /**
+     * 从hbase查询一行 不经过缓存
+     *
+     * @param tableName
+     * @param get
+     * @return
+     */
+    private Result loadRow(String tableName, Get get) {
+        SaltedKeyCodec codec = saltedTables.get(tableName);
         try {
-            return this.executeTableAction(tableName, new TableAction<Result>() {
-                public Result excute(Table table) throws IOException {
-                    return table.get(get);
+            final Get realGet = codec == null ? get : codec.salt(get);
+
+            Result result;
+            GetCoalescer coalescer = getCoalescer();
+            if (coalescer != null) {
+                long begin = System.nanoTime();
+                boolean success = false;
+                try {
+                    result = coalescer.get(tableName, realGet);
+                    success = true;
+                } finally {
+                    record(tableName, "getRow.coalesced", begin, 1, success);
                 }
-            });
+            } else {
+                result = this.executeTableAction("getRow", tableName, get.getRow(), 1, new TableAction<Result>() {
+                    public Result excute(Table table) throws IOException {
+                        return table.get(realGet);
+                    }
+                });
+            }
+            return codec == null ? result : codec.unsalt(result);
         } catch (IOException e) {
             throw new HbaseComponentException("Error getRow.  Cause: " + e, e);
         }
@@ -400,8 +921,37 @@ public class HbaseClient {
      * @return
      */
     public Result[] getRows(String tableName, final List<Get> gets) {
+        SaltedKeyCodec codec = saltedTables.get(tableName);
+        if (codec == null) {
+            return getRowsDirect("getRows", tableName, gets);
+        }
+
+        try {
+            List<Get> salted = new ArrayList<Get>(gets.size());
+            for (Get get : gets) {
+                salted.add(codec.salt(get));
+            }
+            Result[] results = getRowsDirect("getRows", tableName, salted);
+            for (int i = 0; i < results.length; i++) {
+                results[i] = codec.unsalt(results[i]);
+            }
+            return results;
+        } catch (IOException e) {
+            throw new HbaseComponentException("Error getRows.  Cause: " + e, e);
+        }
+    }
+
+    /**
+     * 直接发出批量get 不经过合并
+     *
+     * @param operation 指标里的操作名
+     * @param tableName
+     * @param gets
+     * @return
+     */
+    Result[] getRowsDirect(String operation, String tableName, final List<Get> gets) {
         try {
-            return this.executeTableAction(tableName, new TableAction<Result[]>() {
+            return this.executeTableAction(operation, tableName, null, gets.size(), new TableAction<Result[]>() {
                 public Result[] excute(Table table) throws IOException {
                     return table.get(gets);
                 }
@@ -412,19 +962,21 @@ public class HbaseClient {
     }
 
     /**
-     * 获取多行
+     * 获取多行 返回的scanner挂在共享的connection上，调用方用完需要close
      *
      * @param tableName
      * @param startRowkey
      * @param endRowkey
      * @return
+     * @deprecated 请使用 {@link #scan(String, String, String, RowVisitor)} 或 {@link #openScanner(String, Scan)}
      */
-    public ResultScanner getRows(String tableName, final String startRowkey, final String endRowkey) {
+    @Deprecated
+    public ResultScanner getRows(final String tableName, final String startRowkey, final String endRowkey) {
         try {
-            return this.executeTableAction(tableName, new TableAction<ResultScanner>() {
+            return this.executeTableAction("getScanner", tableName, startRowkey, 0, new TableAction<ResultScanner>() {
                 public ResultScanner excute(Table table) throws IOException {
                     Scan scan = new Scan(Bytes.toBytes(startRowkey), Bytes.toBytes(endRowkey));
-                    return table.getScanner(scan);
+                    return getScanner(table, tableName, scan);
                 }
             });
         } catch (IOException e) {
@@ -434,17 +986,19 @@ public class HbaseClient {
 
 
     /**
-     * 全表扫描tableName查询
+     * 全表扫描tableName查询 返回的scanner挂在共享的connection上，调用方用完需要close
      *
      * @param tableName
      * @param scan
      * @return
+     * @deprecated 请使用 {@link #scan(String, Scan, RowVisitor)} 或 {@link #openScanner(String, Scan)}
      */
-    public ResultScanner getRows(String tableName, final Scan scan) {
+    @Deprecated
+    public ResultScanner getRows(final String tableName, final Scan scan) {
         try {
-            return this.executeTableAction(tableName, new TableAction<ResultScanner>() {
+            return this.executeTableAction("getScanner", tableName, scan.getStartRow(), 0, new TableAction<ResultScanner>() {
                 public ResultScanner excute(Table table) throws IOException {
-                    return table.getScanner(scan);
+                    return getScanner(table, tableName, scan);
                 }
             });
         } catch (IOException e) {
@@ -453,10 +1007,375 @@ public class HbaseClient {
     }
 
 
-    public interface AdminAction<T> {
-        T excute(HBaseAdmin admin) throws IOException;
-    }
-
+    /**
+     * 扫描[startRowkey, endRowkey) 逐行回调visitor Scan由客户端创建 会应用ScanConf的cacheBlocks
+     *
+     * @param tableName
+     * @param startRowkey
+     * @param endRowkey
+     * @param visitor
+     * @return 回调的行数
+     */
+    public long scan(String tableName, String startRowkey, String endRowkey, RowVisitor visitor) {
+        Scan scan = new Scan(Bytes.toBytes(startRowkey), Bytes.toBytes(endRowkey));
+        if (scanConf.getCacheBlocks() != null) {
+            scan.setCacheBlocks(scanConf.getCacheBlocks());
+        }
+        return scan(tableName, scan, visitor);
+    }
+
+    /**
+     * 扫描 逐行回调visitor 回调返回false时提前结束 扫描结束后资源自动释放
+     *
+     * @param tableName
+     * @param scan
+     * @param visitor
+     * @return 回调的行数
+     */
+    public long scan(final String tableName, final Scan scan, final RowVisitor visitor) {
+        applyScanConf(scan);
+        try {
+            return this.executeTableAction("scan", tableName, scan.getStartRow(), 0, false, new TableAction<Long>() {
+                public Long excute(Table table) throws IOException {
+                    long count = 0;
+                    ResultScanner scanner = getScanner(table, tableName, scan);
+                    try {
+                        for (Result result = scanner.next(); result != null; result = scanner.next()) {
+                            count++;
+                            if (!visitor.visit(result)) {
+                                break;
+                            }
+                        }
+                    } finally {
+                        scanner.close();
+                    }
+                    return count;
+                }
+            });
+        } catch (IOException e) {
+            throw new HbaseComponentException("Error scan.  Cause: " + e, e);
+        }
+    }
+
+    /**
+     * 扫描 逐个cell回调visitor 整个扫描复用一个CellView 不为每个cell拷贝value
+     *
+     * @param tableName
+     * @param scan
+     * @param visitor
+     * @return 回调的cell数
+     */
+    public long scanCells(String tableName, Scan scan, final CellVisitor visitor) {
+        final CellView view = new CellView();
+        final long[] count = new long[1];
+        final CellVisitor counting = new CellVisitor() {
+            public boolean visit(CellView cell) throws IOException {
+                count[0]++;
+                return visitor.visit(cell);
+            }
+        };
+        scan(tableName, scan, new RowVisitor() {
+            public boolean visit(Result result) throws IOException {
+                return CellView.forEach(result, view, counting);
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * 打开一个流式扫描 调用方负责close
+     *
+     * @param tableName
+     * @param scan
+     * @return
+     */
+    public HbaseScanner openScanner(String tableName, Scan scan) {
+        applyScanConf(scan);
+
+        long begin = System.nanoTime();
+        Table table = null;
+        try {
+            table = getHTable(tableName);
+            HbaseScanner scanner = new HbaseScanner(this, table, getScanner(table, tableName, scan));
+            record(tableName, "openScanner", begin, 0, true);
+            return scanner;
+        } catch (IOException e) {
+            releaseTable(table);
+            record(tableName, "openScanner", begin, 0, false);
+            throw new HbaseComponentException("Error openScanner.  Cause: " + e, e);
+        } catch (RuntimeException e) {
+            releaseTable(table);
+            record(tableName, "openScanner", begin, 0, false);
+            throw e;
+        }
+    }
+
+    /**
+     * 以Stream的方式扫描 调用方负责close这个Stream
+     *
+     * @param tableName
+     * @param scan
+     * @return
+     */
+    public Stream<Result> streamRows(String tableName, Scan scan) {
+        return openScanner(tableName, scan).stream();
+    }
+
+    /**
+     * 按region边界切分后并行扫描 visitor在调用线程上逐行回调 不需要线程安全
+     *
+     * @param tableName
+     * @param scan
+     * @param parallelScanConf 并行度、是否有序、缓冲大小
+     * @param visitor
+     * @return 回调的行数
+     */
+    public long parallelScan(String tableName, Scan scan, ParallelScanConf parallelScanConf, RowVisitor visitor) {
+        applyScanConf(scan);
+        long begin = System.nanoTime();
+        boolean success = false;
+        try {
+            long rows = new ParallelScanner(this, tableName, scan, parallelScanConf).run(visitor);
+            success = true;
+            return rows;
+        } catch (IOException e) {
+            throw new HbaseComponentException("Error parallelScan.  Cause: " + e, e);
+        } finally {
+            record(tableName, "parallelScan", begin, 0, success);
+        }
+    }
+
+    /**
+     * 打开scanner 加盐表按盐值拆开扫描再归并
+     */
+    private ResultScanner getScanner(Table table, String tableName, Scan scan) throws IOException {
+        SaltedKeyCodec codec = saltedTables.get(tableName);
+        return codec == null ? table.getScanner(scan) : new SaltedScanner(table, scan, codec);
+    }
+
+    /**
+     * 把默认扫描参数应用到调用方没有设置的项上
+     * cacheBlocks无法区分调用方是否设置过 只在客户端自己创建的Scan上应用
+     *
+     * @param scan
+     */
+    private void applyScanConf(Scan scan) {
+        if (scan.getCaching() <= 0 && scanConf.getCaching() > 0) {
+            scan.setCaching(scanConf.getCaching());
+        }
+        if (scan.getMaxResultSize() <= 0 && scanConf.getMaxResultSize() > 0) {
+            scan.setMaxResultSize(scanConf.getMaxResultSize());
+        }
+        if (scan.getBatch() <= 0 && scanConf.getBatch() > 0) {
+            scan.setBatch(scanConf.getBatch());
+        }
+    }
+
+    /*华丽的分割线——03  以下是异步写*/
+
+    /**
+     * 获取tableName的异步写 同一张表共享一个
+     * 直接写入的mutation不会加盐 对外只通过mutate写入
+     *
+     * @param tableName
+     * @return
+     */
+    HbaseBufferedWriter getBufferedWriter(String tableName) {
+        HbaseBufferedWriter writer = bufferedWriters.get(tableName);
+        if (writer != null) {
+            return writer;
+        }
+
+        synchronized (this) {
+            if (closed) {
+                throw new HbaseComponentException("HbaseClient has been closed");
+            }
+            writer = bufferedWriters.get(tableName);
+            if (writer == null) {
+                try {
+                    writer = new HbaseBufferedWriter(tableName, getConnection(), mutatorConf, mutationFailureListener);
+                } catch (IOException e) {
+                    throw new HbaseComponentException("Error getBufferedWriter.  Cause: " + e, e);
+                }
+                bufferedWriters.put(tableName, writer);
+                startFlushScheduler();
+            }
+            return writer;
+        }
+    }
+
+    /**
+     * 异步写入一个Put/Delete 放入缓冲区即返回 不保证已持久化
+     *
+     * @param tableName
+     * @param mutation
+     */
+    public void mutate(String tableName, Mutation mutation) {
+        invalidateCache(tableName, mutation);
+        SaltedKeyCodec codec = saltedTables.get(tableName);
+        long begin = System.nanoTime();
+        boolean success = false;
+        try {
+            getBufferedWriter(tableName).mutate(codec == null ? mutation : codec.salt(mutation));
+            success = true;
+        } catch (IOException e) {
+            throw new HbaseComponentException("Error mutate.  Cause: " + e, e);
+        } finally {
+            record(tableName, "mutate", begin, 1, success);
+        }
+    }
+
+    /**
+     * 异步写入一批Put/Delete 放入缓冲区即返回 不保证已持久化
+     *
+     * @param tableName
+     * @param mutations
+     */
+    public void mutate(String tableName, List<? extends Mutation> mutations) {
+        invalidateCache(tableName, mutations);
+        SaltedKeyCodec codec = saltedTables.get(tableName);
+        long begin = System.nanoTime();
+        boolean success = false;
+        try {
+            getBufferedWriter(tableName).mutate(codec == null ? mutations : codec.salt(mutations));
+            success = true;
+        } catch (IOException e) {
+            throw new HbaseComponentException("Error mutate.  Cause: " + e, e);
+        } finally {
+            record(tableName, "mutate", begin, mutations.size(), success);
+        }
+    }
+
+    /**
+     * 提交tableName缓冲区中的数据并等待确认 有失败时抛异常
+     *
+     * @param tableName
+     */
+    public void flush(String tableName) {
+        HbaseBufferedWriter writer = bufferedWriters.get(tableName);
+        if (writer != null) {
+            long begin = System.nanoTime();
+            boolean success = false;
+            try {
+                writer.flush();
+                success = true;
+            } finally {
+                record(tableName, "flush", begin, 0, success);
+            }
+        }
+    }
+
+    /**
+     * 定时flush所有表的缓冲区
+     */
+    private void startFlushScheduler() {
+        if (flushScheduler != null || mutatorConf.getFlushIntervalMillis() <= 0) {
+            return;
+        }
+
+        long interval = mutatorConf.getFlushIntervalMillis();
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("hbase-mutator-flush"));
+        flushScheduler.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                for (HbaseBufferedWriter writer : bufferedWriters.values()) {
+                    writer.periodicFlush();
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * 获取get合并器 没有开启时返回null
+     *
+     * @return
+     */
+    public GetCoalescer getCoalescer() {
+        if (getBatchConf == null) {
+            return null;
+        }
+
+        GetCoalescer coalescer = getCoalescer;
+        if (coalescer == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw new HbaseComponentException("HbaseClient has been closed");
+                }
+                coalescer = getCoalescer;
+                if (coalescer == null) {
+                    coalescer = new GetCoalescer(this, getBatchConf);
+                    getCoalescer = coalescer;
+                }
+            }
+        }
+        return coalescer;
+    }
+
+
+    /**
+     * 让row对应的缓存失效
+     *
+     * @param tableName
+     * @param row
+     */
+    private void invalidateCache(String tableName, Row row) {
+        RowCache cache = rowCache;
+        if (cache != null && row != null) {
+            cache.invalidate(tableName, row.getRow());
+        }
+    }
+
+    /**
+     * 让rows对应的缓存失效
+     *
+     * @param tableName
+     * @param rows
+     */
+    private void invalidateCache(String tableName, List<? extends Row> rows) {
+        RowCache cache = rowCache;
+        if (cache != null && rows != null) {
+            for (Row row : rows) {
+                cache.invalidate(tableName, row.getRow());
+            }
+        }
+    }
+
+
+    private List<Put> saltPuts(String tableName, List<Put> puts) throws IOException {
+        SaltedKeyCodec codec = saltedTables.get(tableName);
+        if (codec == null) {
+            return puts;
+        }
+        List<Put> salted = new ArrayList<Put>(puts.size());
+        for (Put put : puts) {
+            salted.add(codec.salt(put));
+        }
+        return salted;
+    }
+
+    /**
+     * 登记一张加盐表 之后对这张表的读写自动加盐 盐值个数必须和建表时一致
+     *
+     * @param tableName
+     * @param buckets
+     */
+    public void registerSaltedTable(String tableName, int buckets) {
+        saltedTables.put(tableName, new SaltedKeyCodec(buckets));
+    }
+
+    /**
+     * @param tableName
+     * @return 不是加盐表时返回null
+     */
+    public SaltedKeyCodec getSaltedKeyCodec(String tableName) {
+        return saltedTables.get(tableName);
+    }
+
+
+    public interface AdminAction<T> {
+        T excute(HBaseAdmin admin) throws IOException;
+    }
+
     interface TableAction<T> {
         T excute(Table table) throws IOException;
     }
@@ -466,20 +1385,33 @@ public class HbaseClient {
      * HAdminAction的通用执行器【内部如果发生IO异常 直接扔运行时异常 报警当前系统环境不稳定】
      * 内部 流程化 管理好资源，外部不用关心，只需要传入执行的Action即可
      *
+     * @param operation 指标里的操作名
+     * @param scope     指标里的表名 不针对单表时为"*"
      * @param action
      * @return
      */
 
-    private <T> T executeAdminAction(AdminAction<T> action) throws IOException {
-        Connection connection = null;
+    private <T> T executeAdminAction(String operation, String scope, AdminAction<T> action) throws IOException {
+        OperationContext context = tracer.begin(scope, operation, null, 0);
+        boolean success = false;
         HBaseAdmin admin = null;
         try {
-            connection = ConnectionFactory.createConnection(hbaseConf.getHbaseConf());
-            admin = (HBaseAdmin) connection.getAdmin();
+            admin = (HBaseAdmin) getConnection().getAdmin();
+            context.markConnected();
 
-            return action.excute(admin);
+            T result = action.excute(admin);
+            context.markExecuted();
+            success = true;
+            return result;
+        } catch (IOException e) {
+            context.fail(e);
+            throw e;
+        } catch (RuntimeException e) {
+            context.fail(e);
+            throw e;
         } finally {
             releaseAdmin(admin);
+            tracer.end(context, success);
         }
     }
 
@@ -488,21 +1420,259 @@ public class HbaseClient {
      * HTableAction的通用执行器
      * 内部 流程化 管理好资源，外部不用关心，只需要传入对哪张表做了什么动作即可
      *
+     * @param operation 指标里的操作名
      * @param tableName
+     * @param target    慢日志和listener里看到的rowkey 批量操作传null
+     * @param batchSize 指标里的批量大小
      * @param tableAction
      * @return
      */
-    private <T> T executeTableAction(String tableName, TableAction<T> tableAction) throws IOException {
+    private <T> T executeTableAction(String operation, String tableName, Object target, int batchSize,
+                                     TableAction<T> tableAction) throws IOException {
+        return executeTableAction(operation, tableName, target, batchSize, true, tableAction);
+    }
 
-        Connection connection = null;
-        Table table = null;
+    /**
+     * 同上 经过表的熔断器；idempotent时可恢复的IOException按RetryPolicy退避重试
+     *
+     * @param idempotent 重复执行是否安全 increment、有副作用的回调传false
+     */
+    private <T> T executeTableAction(String operation, String tableName, Object target, int batchSize,
+                                     boolean idempotent, TableAction<T> tableAction) throws IOException {
+        CircuitBreaker breaker = getCircuitBreaker(tableName);
+        RetryPolicy policy = retryPolicy;
+        policy.onCall();
 
+        OperationContext context = tracer.begin(tableName, operation, target, batchSize);
+        boolean success = false;
         try {
-            connection = ConnectionFactory.createConnection(hbaseConf.getHbaseConf());
-            table = connection.getTable(TableName.valueOf(tableName));
-            return tableAction.excute(table);
+            for (int attempt = 1; ; attempt++) {
+                if (breaker != null && !breaker.tryAcquire()) {
+                    record(tableName, "circuitBreaker.rejected", System.nanoTime(), batchSize, false);
+                    CircuitBreakerOpenException e = new CircuitBreakerOpenException("circuit breaker of " + tableName + " is open");
+                    context.fail(e);
+                    throw e;
+                }
+
+                long attemptBegin = System.nanoTime();
+                Table table = null;
+                try {
+                    table = getConnection().getTable(TableName.valueOf(tableName));
+                    context.markConnected();
+                    T result = tableAction.excute(table);
+                    context.markExecuted();
+                    if (breaker != null) {
+                        breaker.onSuccess();
+                    }
+                    success = true;
+                    return result;
+                } catch (IOException e) {
+                    boolean retryable = RetryPolicy.isRetryable(e);
+                    if (breaker != null) {
+                        // 列族不存在之类的错误说明集群有响应 不算熔断的失败
+                        if (RetryPolicy.mayHaveClusterIssues(e)) {
+                            breaker.onFailure();
+                        } else {
+                            breaker.onSuccess();
+                        }
+                    }
+                    if (!idempotent || !retryable || !policy.allowRetry(attempt)) {
+                        context.fail(e);
+                        throw e;
+                    }
+                    record(tableName, operation + ".retry", attemptBegin, batchSize, false);
+                    logger.warn("{} {} failed, retry attempt {} :{}", new Object[]{operation, tableName, attempt + 1, e.toString()});
+                    if (!policy.backoff(attempt)) {
+                        context.fail(e);
+                        throw new InterruptedIOException("interrupted while retrying " + operation);
+                    }
+                } catch (RuntimeException e) {
+                    // 客户端的异常 不一定发出过rpc 不影响熔断状态
+                    if (breaker != null) {
+                        breaker.onIgnored();
+                    }
+                    context.fail(e);
+                    throw e;
+                } finally {
+                    releaseTable(table);
+                }
+            }
         } finally {
-            releaseTable(table);
+            tracer.end(context, success);
+        }
+    }
+
+    /**
+     * 表的熔断器 第一次访问时创建并导出到MetricsRegistry
+     *
+     * @param tableName
+     * @return 关闭了熔断时返回null
+     */
+    private CircuitBreaker getCircuitBreaker(String tableName) {
+        CircuitBreakerConf conf = circuitBreakerConf;
+        if (conf == null || !conf.isEnabled()) {
+            return null;
+        }
+        CircuitBreaker breaker = circuitBreakers.get(tableName);
+        if (breaker == null) {
+            breaker = new CircuitBreaker(tableName, conf);
+            CircuitBreaker exist = circuitBreakers.putIfAbsent(tableName, breaker);
+            if (exist != null) {
+                return exist;
+            }
+            MetricsRegistry registry = tracer.getMetricsRegistry();
+            if (registry != null) {
+                registry.registerState(tableName, "CircuitBreaker", breaker);
+            }
+        }
+        return breaker;
+    }
+
+    /**
+     * 记录一次操作的指标
+     */
+    private void record(String scope, String operation, long beginNanos, int batchSize, boolean success) {
+        tracer.record(scope, operation, beginNanos, batchSize, success);
+    }
+
+    public MutatorConf getMutatorConf() {
+        return mutatorConf;
+    }
+
+    public void setMutatorConf(MutatorConf mutatorConf) {
+        this.mutatorConf = mutatorConf;
+    }
+
+    public MutationFailureListener getMutationFailureListener() {
+        return mutationFailureListener;
+    }
+
+    public void setMutationFailureListener(MutationFailureListener mutationFailureListener) {
+        this.mutationFailureListener = mutationFailureListener;
+    }
+
+    public GetBatchConf getGetBatchConf() {
+        return getBatchConf;
+    }
+
+    public void setGetBatchConf(GetBatchConf getBatchConf) {
+        this.getBatchConf = getBatchConf;
+    }
+
+    public RowCache getRowCache() {
+        return rowCache;
+    }
+
+    /**
+     * 开启/关闭行缓存 传null表示关闭
+     *
+     * @param rowCacheConf
+     */
+    public void setRowCacheConf(RowCacheConf rowCacheConf) {
+        this.rowCache = rowCacheConf == null ? null : new RowCache(rowCacheConf);
+    }
+
+    public ScanConf getScanConf() {
+        return scanConf;
+    }
+
+    public void setScanConf(ScanConf scanConf) {
+        this.scanConf = scanConf;
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return tracer.getMetricsRegistry();
+    }
+
+    /**
+     * 替换指标实现 传null表示不统计
+     *
+     * @param metricsRegistry
+     */
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        tracer.setMetricsRegistry(metricsRegistry);
+    }
+
+    public TraceConf getTraceConf() {
+        return tracer.getTraceConf();
+    }
+
+    public RetryConf getRetryConf() {
+        return retryPolicy.getConf();
+    }
+
+    /**
+     * 替换重试配置 重试预算重新计算
+     *
+     * @param retryConf
+     */
+    public void setRetryConf(RetryConf retryConf) {
+        this.retryPolicy = new RetryPolicy(retryConf);
+    }
+
+    public CircuitBreakerConf getCircuitBreakerConf() {
+        return circuitBreakerConf;
+    }
+
+    /**
+     * 只对之后第一次访问的表生效 需要在使用前设置
+     *
+     * @param circuitBreakerConf
+     */
+    public void setCircuitBreakerConf(CircuitBreakerConf circuitBreakerConf) {
+        this.circuitBreakerConf = circuitBreakerConf;
+    }
+
+    /**
+     * @param tableName
+     * @return 表还没有访问过或者关闭了熔断时返回null
+     */
+    public CircuitBreaker.State getCircuitBreakerState(String tableName) {
+        CircuitBreaker breaker = circuitBreakers.get(tableName);
+        return breaker == null ? null : breaker.getState();
+    }
+
+    public void setTraceConf(TraceConf traceConf) {
+        tracer.setTraceConf(traceConf);
+    }
+
+    public void addOperationListener(OperationListener listener) {
+        tracer.addListener(listener);
+    }
+
+    public void removeOperationListener(OperationListener listener) {
+        tracer.removeListener(listener);
+    }
+
+    public List<OperationListener> getOperationListeners() {
+        return tracer.getListeners();
+    }
+
+    /**
+     * spring注入用 替换掉已有的listener
+     *
+     * @param listeners
+     */
+    public void setOperationListeners(List<OperationListener> listeners) {
+        tracer.setListeners(listeners);
+    }
+
+    public RoutedWriteConf getRoutedWriteConf() {
+        return routedWriteConf;
+    }
+
+    public void setRoutedWriteConf(RoutedWriteConf routedWriteConf) {
+        this.routedWriteConf = routedWriteConf;
+    }
+
+    /**
+     * 配置方式登记加盐表 表名 -> 盐值个数
+     *
+     * @param saltedTables
+     */
+    public void setSaltedTables(Map<String, Integer> saltedTables) {
+        for (Map.Entry<String, Integer> entry : saltedTables.entrySet()) {
+            registerSaltedTable(entry.getKey(), entry.getValue());
         }
     }
 
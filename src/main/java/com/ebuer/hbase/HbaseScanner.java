@@ -0,0 +1,109 @@
+package com.ebuer.hbase;
+
+import com.ebuer.exception.HbaseComponentException;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Table;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 流式扫描 持有Table和ResultScanner 直到close才释放
+ * 建议try-with-resources使用：
+ * try (HbaseScanner scanner = hbaseClient.openScanner("user", scan)) {
+ *      for (Result result : scanner) {
+ *          // do what you want
+ *      }
+ * }
+ */
+public class HbaseScanner implements Closeable, Iterable<Result> {
+
+    private final HbaseClient hbaseClient;
+
+    private final Table table;
+
+    private final ResultScanner scanner;
+
+    private boolean closed = false;
+
+
+    HbaseScanner(HbaseClient hbaseClient, Table table, ResultScanner scanner) {
+        this.hbaseClient = hbaseClient;
+        this.table = table;
+        this.scanner = scanner;
+    }
+
+    /**
+     * 下一行 扫描结束返回null
+     *
+     * @return
+     */
+    public Result next() {
+        if (closed) {
+            return null;
+        }
+        try {
+            return scanner.next();
+        } catch (IOException e) {
+            throw new HbaseComponentException("Error scan next.  Cause: " + e, e);
+        }
+    }
+
+    public Iterator<Result> iterator() {
+        return new Iterator<Result>() {
+
+            private Result next = null;
+
+            public boolean hasNext() {
+                if (next == null) {
+                    next = HbaseScanner.this.next();
+                }
+                return next != null;
+            }
+
+            public Result next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Result current = next;
+                next = null;
+                return current;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * 转成Stream 流关闭时释放资源
+     *
+     * @return
+     */
+    public Stream<Result> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(new Runnable() {
+                    public void run() {
+                        close();
+                    }
+                });
+    }
+
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        scanner.close();
+        hbaseClient.releaseTable(table);
+    }
+}
@@ -0,0 +1,72 @@
+package com.ebuer.hbase;
+
+import com.alibaba.fastjson.JSON;
+import com.ebuer.exception.PhoenixException;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * 把ResultSet逐行写成json 格式和execQuerySql一致：{"data":[{"COL":"value"},...]}
+ * 值为null的列不输出；按列下标读取，列名只在开始时取一次，内存占用和结果集大小无关
+ */
+public class JsonResultSetWriter implements ResultSetExtractor<Long> {
+
+    private final Writer writer;
+
+
+    public JsonResultSetWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * @param set
+     * @return 写出的行数
+     * @throws SQLException
+     */
+    public Long extractData(ResultSet set) throws SQLException {
+        ResultSetMetaData meta = set.getMetaData();
+        int count = meta.getColumnCount();
+
+        // 列名提前编码好 "COL":
+        String[] keys = new String[count + 1];
+        for (int i = 1; i <= count; i++) {
+            keys[i] = JSON.toJSONString(meta.getColumnName(i)) + ":";
+        }
+
+        long rows = 0;
+        try {
+            writer.write("{\"data\":[");
+            while (set.next()) {
+                if (rows > 0) {
+                    writer.write(',');
+                }
+                writer.write('{');
+                boolean first = true;
+                for (int i = 1; i <= count; i++) {
+                    String value = set.getString(i);
+                    if (value == null) {
+                        continue;
+                    }
+                    if (!first) {
+                        writer.write(',');
+                    }
+                    writer.write(keys[i]);
+                    writer.write(JSON.toJSONString(value));
+                    first = false;
+                }
+                writer.write('}');
+                rows++;
+            }
+            writer.write("]}");
+            writer.flush();
+        } catch (IOException e) {
+            throw new PhoenixException("phoenix write json error", e);
+        }
+        return rows;
+    }
+}
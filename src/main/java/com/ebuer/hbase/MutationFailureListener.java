@@ -0,0 +1,18 @@
+package com.ebuer.hbase;
+
+import org.apache.hadoop.hbase.client.Row;
+
+/**
+ * 异步写失败的回调 重试耗尽之后每条失败的mutation回调一次
+ * 回调发生在hbase的flush线程或者调用mutate/flush的线程上，不要在里面做耗时操作
+ */
+public interface MutationFailureListener {
+
+    /**
+     * @param tableName    表名
+     * @param row          失败的Put/Delete
+     * @param cause        失败原因
+     * @param hostnamePort 所在的regionserver
+     */
+    void onFailure(String tableName, Row row, Throwable cause, String hostnamePort);
+}
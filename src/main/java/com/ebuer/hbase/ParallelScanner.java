@@ -0,0 +1,254 @@
+package com.ebuer.hbase;
+
+import com.ebuer.conf.ParallelScanConf;
+import com.ebuer.exception.HbaseComponentException;
+import com.ebuer.util.NamedThreadFactory;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 按region边界切分扫描范围 在有界线程池上并行扫描 结果在调用线程上逐行回调
+ * <p>
+ * 1、有序模式：每个region一个缓冲队列，按region顺序消费，回调顺序和串行扫描一致
+ * 2、无序模式：所有region共用一个缓冲队列，哪个先到先回调
+ * 3、缓冲都是有界的，回调跟不上时扫描线程阻塞(背压)
+ * 4、加盐表按盐值切分，只支持无序模式，需要按rowkey有序请用HbaseClient.scan
+ */
+class ParallelScanner {
+
+    /**
+     * 一个region扫描结束的标记
+     */
+    private static final Result END = Result.create(new Cell[0]);
+
+    private final HbaseClient hbaseClient;
+
+    private final String tableName;
+
+    private final Scan scan;
+
+    private final ParallelScanConf conf;
+
+    private final SaltedKeyCodec codec;
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+
+    ParallelScanner(HbaseClient hbaseClient, String tableName, Scan scan, ParallelScanConf conf) {
+        this.hbaseClient = hbaseClient;
+        this.tableName = tableName;
+        this.scan = scan;
+        this.conf = conf;
+        this.codec = hbaseClient.getSaltedKeyCodec(tableName);
+    }
+
+    /**
+     * 并行扫描 visitor在调用线程上回调 不需要线程安全
+     *
+     * @param visitor
+     * @return 回调的行数
+     * @throws IOException
+     */
+    long run(RowVisitor visitor) throws IOException {
+        if (scan.isReversed()) {
+            throw new HbaseComponentException("parallel scan does not support reversed scan");
+        }
+        if (codec != null && conf.isOrdered()) {
+            throw new HbaseComponentException("parallel scan on salted table " + tableName + " must be unordered");
+        }
+
+        List<Scan> splits = split();
+        if (splits.isEmpty()) {
+            return 0;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(conf.getParallelism(), splits.size()),
+                new NamedThreadFactory("hbase-parallel-scan-" + tableName));
+        try {
+            if (conf.isOrdered()) {
+                return runOrdered(pool, splits, visitor);
+            }
+            return runUnordered(pool, splits, visitor);
+        } finally {
+            // 提前结束或者出错时中断还在扫描的线程
+            pool.shutdownNow();
+        }
+    }
+
+    private long runOrdered(ExecutorService pool, List<Scan> splits, RowVisitor visitor) throws IOException {
+        List<BlockingQueue<Result>> queues = new ArrayList<BlockingQueue<Result>>(splits.size());
+        for (Scan split : splits) {
+            BlockingQueue<Result> queue = new ArrayBlockingQueue<Result>(conf.getBufferSize());
+            queues.add(queue);
+            // 线程池按提交顺序执行 当前消费的region一定已经开始或者马上开始扫描 不会死锁
+            pool.submit(new SplitTask(split, queue));
+        }
+
+        long count = 0;
+        for (BlockingQueue<Result> queue : queues) {
+            for (Result result = take(queue); result != END; result = take(queue)) {
+                count++;
+                if (!visitor.visit(result)) {
+                    return count;
+                }
+            }
+        }
+        return count;
+    }
+
+    private long runUnordered(ExecutorService pool, List<Scan> splits, RowVisitor visitor) throws IOException {
+        BlockingQueue<Result> queue = new ArrayBlockingQueue<Result>(conf.getBufferSize());
+        for (Scan split : splits) {
+            pool.submit(new SplitTask(split, queue));
+        }
+
+        long count = 0;
+        int finished = 0;
+        while (finished < splits.size()) {
+            Result result = take(queue);
+            if (result == END) {
+                finished++;
+                continue;
+            }
+            count++;
+            if (!visitor.visit(result)) {
+                return count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 取下一行 任何一个region扫描失败立即抛出
+     */
+    private Result take(BlockingQueue<Result> queue) {
+        try {
+            while (true) {
+                checkFailure();
+                Result result = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (result != null) {
+                    if (result == END) {
+                        checkFailure();
+                    }
+                    return result;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HbaseComponentException("Error parallel scan interrupted.  Cause: " + e, e);
+        }
+    }
+
+    private void checkFailure() {
+        Throwable e = failure.get();
+        if (e != null) {
+            throw new HbaseComponentException("Error parallel scan.  Cause: " + e, e);
+        }
+    }
+
+    /**
+     * 用region的起止key切分扫描范围 加盐表每个盐值一段
+     *
+     * @return
+     * @throws IOException
+     */
+    List<Scan> split() throws IOException {
+        if (codec != null) {
+            return codec.bucketScans(scan);
+        }
+
+        byte[] scanStart = scan.getStartRow();
+        byte[] scanStop = scan.getStopRow();
+
+        Pair<byte[][], byte[][]> keys;
+        RegionLocator locator = hbaseClient.getConnection().getRegionLocator(TableName.valueOf(tableName));
+        try {
+            keys = locator.getStartEndKeys();
+        } finally {
+            locator.close();
+        }
+
+        List<Scan> splits = new ArrayList<Scan>();
+        for (int i = 0; i < keys.getFirst().length; i++) {
+            byte[] regionStart = keys.getFirst()[i];
+            byte[] regionStop = keys.getSecond()[i];
+
+            byte[] start = Bytes.compareTo(regionStart, scanStart) > 0 ? regionStart : scanStart;
+            byte[] stop;
+            if (isEmpty(regionStop)) {
+                stop = scanStop;
+            } else if (isEmpty(scanStop)) {
+                stop = regionStop;
+            } else {
+                stop = Bytes.compareTo(regionStop, scanStop) < 0 ? regionStop : scanStop;
+            }
+
+            if (!isEmpty(stop) && Bytes.compareTo(start, stop) >= 0) {
+                continue;
+            }
+
+            Scan split = new Scan(scan);
+            split.setStartRow(start);
+            split.setStopRow(stop);
+            splits.add(split);
+        }
+        return splits;
+    }
+
+    private static boolean isEmpty(byte[] key) {
+        return key == null || Bytes.equals(key, HConstants.EMPTY_BYTE_ARRAY);
+    }
+
+    /**
+     * 扫描一个region 结果放进缓冲队列 满了就阻塞
+     */
+    private class SplitTask implements Runnable {
+
+        private final Scan split;
+
+        private final BlockingQueue<Result> queue;
+
+        SplitTask(Scan split, BlockingQueue<Result> queue) {
+            this.split = split;
+            this.queue = queue;
+        }
+
+        public void run() {
+            Table table = null;
+            ResultScanner scanner = null;
+            try {
+                table = hbaseClient.getHTable(tableName);
+                scanner = table.getScanner(split);
+                for (Result result = scanner.next(); result != null; result = scanner.next()) {
+                    queue.put(codec == null ? result : codec.unsalt(result));
+                }
+            } catch (InterruptedException e) {
+                // 消费方已经结束 直接退出
+                return;
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                if (scanner != null) {
+                    scanner.close();
+                }
+                hbaseClient.releaseTable(table);
+            }
+
+            try {
+                queue.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
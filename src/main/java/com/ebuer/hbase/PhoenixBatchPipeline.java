@@ -0,0 +1,171 @@
+package com.ebuer.hbase;
+
+import com.ebuer.conf.PhoenixBatchConf;
+import com.ebuer.exception.PhoenixBatchException;
+import com.ebuer.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 在一个连接上按行数/字节数阈值切批 每批executeBatch之后立即commit
+ * 客户端的mutation state只保留当前批次 内存和总行数无关
+ * <p>
+ * 一个pipeline只处理一种输入：原始sql(add(String)) 或者 同一个模板的参数(add(Object[]))
+ */
+class PhoenixBatchPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhoenixBatchPipeline.class);
+
+    /**
+     * 无法估算的参数按这个字节数算
+     */
+    private static final int DEFAULT_VALUE_BYTES = 16;
+
+    private final Connection connection;
+
+    private final Statement statement;
+
+    private final PhoenixBatchConf conf;
+
+    private final BatchReport report;
+
+    private final int worker;
+
+    private final MetricsRegistry metrics;
+
+    private final String scope;
+
+    private int batchIndex = 0;
+
+    private int rows = 0;
+
+    private long bytes = 0;
+
+    private long batchBegin = 0;
+
+
+    /**
+     * @param connection
+     * @param statement  原始sql时传createStatement()的结果 参数化时传模板的PreparedStatement
+     * @param conf
+     * @param report     多个pipeline可以共用一个report
+     * @param metrics    每个批次的行数和提交耗时记到scope/commitBatch 为空不统计
+     * @param scope      指标作用域 见PhoenixClient.scopeOf
+     */
+    PhoenixBatchPipeline(Connection connection, Statement statement, PhoenixBatchConf conf, BatchReport report,
+                         MetricsRegistry metrics, String scope) {
+        this(connection, statement, conf, report, 0, metrics, scope);
+    }
+
+    PhoenixBatchPipeline(Connection connection, Statement statement, PhoenixBatchConf conf, BatchReport report,
+                         int worker, MetricsRegistry metrics, String scope) {
+        this.connection = connection;
+        this.statement = statement;
+        this.conf = conf;
+        this.report = report;
+        this.worker = worker;
+        this.metrics = metrics;
+        this.scope = scope;
+    }
+
+    /**
+     * 加入一条原始sql
+     *
+     * @param sql
+     * @throws SQLException
+     */
+    void add(String sql) throws SQLException {
+        begin();
+        statement.addBatch(sql);
+        added(sql.length());
+    }
+
+    /**
+     * 加入一行参数
+     *
+     * @param params
+     * @throws SQLException
+     */
+    void add(Object[] params) throws SQLException {
+        begin();
+        PreparedStatement preparedStatement = (PreparedStatement) statement;
+        PhoenixClient.setParameters(preparedStatement, params);
+        preparedStatement.addBatch();
+        added(estimateBytes(params));
+    }
+
+    /**
+     * 提交最后一个不满的批次
+     */
+    void finish() {
+        if (rows > 0) {
+            flush();
+        }
+    }
+
+    private void begin() {
+        if (rows == 0) {
+            batchBegin = System.currentTimeMillis();
+        }
+    }
+
+    private void added(long rowBytes) {
+        rows++;
+        bytes += rowBytes;
+        if (rows >= conf.getMaxBatchRows() || bytes >= conf.getMaxBatchBytes()) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        Throwable error = null;
+        long commitBegin = System.nanoTime();
+        try {
+            statement.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            error = e;
+            try {
+                statement.clearBatch();
+                connection.rollback();
+            } catch (SQLException re) {
+                logger.error("PhoenixBatchPipeline rollback error :{}", re);
+            }
+        }
+        if (metrics != null) {
+            metrics.record(scope, "commitBatch", System.nanoTime() - commitBegin, rows, error == null);
+        }
+
+        BatchReport.BatchResult result = new BatchReport.BatchResult(worker, batchIndex++, rows, bytes,
+                System.currentTimeMillis() - batchBegin, error);
+        report.add(result);
+        rows = 0;
+        bytes = 0;
+
+        if (error != null && !conf.isContinueOnError()) {
+            throw new PhoenixBatchException("phoenix batch " + result.getIndex() + " failed", error, report);
+        }
+    }
+
+    private static long estimateBytes(Object[] params) {
+        if (params == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (Object param : params) {
+            if (param instanceof String) {
+                bytes += ((String) param).length();
+            } else if (param instanceof byte[]) {
+                bytes += ((byte[]) param).length;
+            } else {
+                bytes += DEFAULT_VALUE_BYTES;
+            }
+        }
+        return bytes;
+    }
+}
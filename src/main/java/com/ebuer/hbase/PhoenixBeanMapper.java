@@ -0,0 +1,277 @@
+package com.ebuer.hbase;
+
+import com.ebuer.exception.PhoenixException;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 把ResultSet的行直接映射成POJO 不经过json
+ * <p>
+ * 1、列名和属性名忽略大小写和下划线匹配：USER_NAME -> userName，匹配不上的列忽略
+ * 2、第一次映射时根据ResultSetMetaData算好 列下标 -> setter + 读取方式，之后每行直接按下标读取
+ *   列名和上次不一致时(例如select *在表结构变更后)重新计算
+ * 3、按setter的参数类型读取原生类型：long/int/double/BigDecimal/Timestamp/byte[]等，不经过String
+ * 4、基本类型的列为null时保持默认值
+ * <p>
+ * 同一个sql+类型的mapper由PhoenixClient缓存复用，线程安全
+ */
+public class PhoenixBeanMapper<T> implements RowMapper<T> {
+
+    private final Class<T> type;
+
+    private final Constructor<T> constructor;
+
+    /**
+     * 属性名(小写去下划线) -> setter
+     */
+    private final Map<String, Method> setters = new HashMap<String, Method>();
+
+    private volatile Bindings bindings;
+
+
+    public PhoenixBeanMapper(Class<T> type) {
+        this.type = type;
+        try {
+            this.constructor = type.getDeclaredConstructor();
+            this.constructor.setAccessible(true);
+
+            BeanInfo beanInfo = Introspector.getBeanInfo(type);
+            for (PropertyDescriptor descriptor : beanInfo.getPropertyDescriptors()) {
+                Method setter = descriptor.getWriteMethod();
+                if (setter != null) {
+                    setter.setAccessible(true);
+                    setters.put(normalize(descriptor.getName()), setter);
+                }
+            }
+        } catch (NoSuchMethodException e) {
+            throw new PhoenixException(type.getName() + " needs a no-arg constructor", e);
+        } catch (IntrospectionException e) {
+            throw new PhoenixException("introspect " + type.getName() + " error", e);
+        }
+    }
+
+    public T mapRow(ResultSet set, int rowNum) throws SQLException {
+        Bindings cached = bindings;
+        ResultSetMetaData meta = set.getMetaData();
+        if (cached == null || !cached.matches(meta)) {
+            cached = bind(meta);
+            bindings = cached;
+        }
+
+        Binding[] current = cached.columns;
+        try {
+            T bean = constructor.newInstance();
+            for (int i = 0; i < current.length; i++) {
+                Binding binding = current[i];
+                if (binding == null) {
+                    continue;
+                }
+                Object value = binding.reader.read(set, i + 1);
+                if (value != null) {
+                    binding.setter.invoke(bean, value);
+                }
+            }
+            return bean;
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new PhoenixException("map row to " + type.getName() + " error", e);
+        }
+    }
+
+    /**
+     * 算出每一列对应的setter和读取方式 匹配不上的列为null
+     */
+    private Bindings bind(ResultSetMetaData meta) throws SQLException {
+        String[] labels = new String[meta.getColumnCount()];
+        Binding[] result = new Binding[labels.length];
+        for (int i = 1; i <= result.length; i++) {
+            labels[i - 1] = meta.getColumnLabel(i);
+            Method setter = setters.get(normalize(labels[i - 1]));
+            if (setter != null) {
+                result[i - 1] = new Binding(setter, ColumnReader.of(setter.getParameterTypes()[0]));
+            }
+        }
+        return new Bindings(labels, result);
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase();
+    }
+
+    /**
+     * 算出bindings时的列名 和当前结果集的列名一致才能复用
+     */
+    private static class Bindings {
+
+        private final String[] labels;
+
+        private final Binding[] columns;
+
+        Bindings(String[] labels, Binding[] columns) {
+            this.labels = labels;
+            this.columns = columns;
+        }
+
+        boolean matches(ResultSetMetaData meta) throws SQLException {
+            if (labels.length != meta.getColumnCount()) {
+                return false;
+            }
+            for (int i = 0; i < labels.length; i++) {
+                if (!labels[i].equals(meta.getColumnLabel(i + 1))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class Binding {
+
+        private final Method setter;
+
+        private final ColumnReader reader;
+
+        Binding(Method setter, ColumnReader reader) {
+            this.setter = setter;
+            this.reader = reader;
+        }
+    }
+
+    /**
+     * 按目标类型读取一列 null统一返回null
+     */
+    enum ColumnReader {
+        LONG {
+            Object read(ResultSet set, int index) throws SQLException {
+                long value = set.getLong(index);
+                return set.wasNull() ? null : value;
+            }
+        },
+        INT {
+            Object read(ResultSet set, int index) throws SQLException {
+                int value = set.getInt(index);
+                return set.wasNull() ? null : value;
+            }
+        },
+        SHORT {
+            Object read(ResultSet set, int index) throws SQLException {
+                short value = set.getShort(index);
+                return set.wasNull() ? null : value;
+            }
+        },
+        BYTE {
+            Object read(ResultSet set, int index) throws SQLException {
+                byte value = set.getByte(index);
+                return set.wasNull() ? null : value;
+            }
+        },
+        DOUBLE {
+            Object read(ResultSet set, int index) throws SQLException {
+                double value = set.getDouble(index);
+                return set.wasNull() ? null : value;
+            }
+        },
+        FLOAT {
+            Object read(ResultSet set, int index) throws SQLException {
+                float value = set.getFloat(index);
+                return set.wasNull() ? null : value;
+            }
+        },
+        BOOLEAN {
+            Object read(ResultSet set, int index) throws SQLException {
+                boolean value = set.getBoolean(index);
+                return set.wasNull() ? null : value;
+            }
+        },
+        DECIMAL {
+            Object read(ResultSet set, int index) throws SQLException {
+                return set.getBigDecimal(index);
+            }
+        },
+        STRING {
+            Object read(ResultSet set, int index) throws SQLException {
+                return set.getString(index);
+            }
+        },
+        TIMESTAMP {
+            Object read(ResultSet set, int index) throws SQLException {
+                return set.getTimestamp(index);
+            }
+        },
+        DATE {
+            Object read(ResultSet set, int index) throws SQLException {
+                return set.getDate(index);
+            }
+        },
+        TIME {
+            Object read(ResultSet set, int index) throws SQLException {
+                return set.getTime(index);
+            }
+        },
+        UTIL_DATE {
+            Object read(ResultSet set, int index) throws SQLException {
+                Timestamp value = set.getTimestamp(index);
+                return value == null ? null : new java.util.Date(value.getTime());
+            }
+        },
+        BYTES {
+            Object read(ResultSet set, int index) throws SQLException {
+                return set.getBytes(index);
+            }
+        },
+        OBJECT {
+            Object read(ResultSet set, int index) throws SQLException {
+                return set.getObject(index);
+            }
+        };
+
+        abstract Object read(ResultSet set, int index) throws SQLException;
+
+        static ColumnReader of(Class<?> type) {
+            if (type == long.class || type == Long.class) {
+                return LONG;
+            } else if (type == int.class || type == Integer.class) {
+                return INT;
+            } else if (type == short.class || type == Short.class) {
+                return SHORT;
+            } else if (type == byte.class || type == Byte.class) {
+                return BYTE;
+            } else if (type == double.class || type == Double.class) {
+                return DOUBLE;
+            } else if (type == float.class || type == Float.class) {
+                return FLOAT;
+            } else if (type == boolean.class || type == Boolean.class) {
+                return BOOLEAN;
+            } else if (type == BigDecimal.class) {
+                return DECIMAL;
+            } else if (type == String.class) {
+                return STRING;
+            } else if (type == Timestamp.class) {
+                return TIMESTAMP;
+            } else if (type == java.sql.Date.class) {
+                return DATE;
+            } else if (type == java.sql.Time.class) {
+                return TIME;
+            } else if (type == java.util.Date.class) {
+                return UTIL_DATE;
+            } else if (type == byte[].class) {
+                return BYTES;
+            }
+            return OBJECT;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.ebuer.hbase;
+
+import com.ebuer.conf.PhoenixBulkLoadConf;
+import com.ebuer.exception.PhoenixBatchException;
+import com.ebuer.exception.PhoenixException;
+import com.ebuer.hbase.PhoenixConnectionPool.PooledConnection;
+import com.ebuer.util.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Phoenix并行导入 把输入分到N个worker上 每个worker用自己的连接独立切批提交
+ * <p>
+ * 1、输入按轮询或者rowKey hash分片，分片队列有界，worker跟不上时读取输入的线程阻塞
+ * 2、每个worker内部和execBatchSql一样按PhoenixBatchConf切批，每批立即提交
+ * 3、所有worker的批次结果汇总到同一个BatchReport，可以通过BatchListener实时汇报进度
+ * 4、连接池maxSize要不小于parallelism，否则worker会等待借连接
+ */
+public class PhoenixBulkLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhoenixBulkLoader.class);
+
+    /**
+     * 分片结束的标记
+     */
+    private static final Object END = new Object();
+
+    private final PhoenixClient phoenixClient;
+
+    private final PhoenixBulkLoadConf conf;
+
+    private BatchReport.BatchListener listener;
+
+
+    public PhoenixBulkLoader(PhoenixClient phoenixClient, PhoenixBulkLoadConf conf) {
+        this.phoenixClient = phoenixClient;
+        this.conf = conf;
+    }
+
+    /**
+     * 并行导入 一个sql模板配多行参数
+     *
+     * @param sql  带?占位符的sql模板
+     * @param rows 每个元素是一行参数
+     * @return 所有worker的批次结果
+     */
+    public BatchReport load(String sql, Iterable<Object[]> rows) {
+        return run(sql, rows.iterator());
+    }
+
+    /**
+     * 并行导入原始sql 只支持轮询分片
+     *
+     * @param sqlList
+     * @return 所有worker的批次结果
+     */
+    public BatchReport loadSql(Iterable<String> sqlList) {
+        return run(null, sqlList.iterator());
+    }
+
+    private BatchReport run(String sqlTemplate, Iterator<?> items) {
+        long begin = System.currentTimeMillis();
+        int parallelism = conf.getParallelism();
+        boolean keyHash = sqlTemplate != null && conf.getPartitionMode() == PhoenixBulkLoadConf.PartitionMode.KEY_HASH;
+
+        BatchReport report = new BatchReport(listener);
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        List<BlockingQueue<Object>> queues = new ArrayList<BlockingQueue<Object>>(parallelism);
+        List<Future<?>> futures = new ArrayList<Future<?>>(parallelism);
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, new NamedThreadFactory("phoenix-bulk-load"));
+        try {
+            for (int i = 0; i < parallelism; i++) {
+                BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(conf.getQueueCapacity());
+                queues.add(queue);
+                futures.add(pool.submit(new Worker(i, sqlTemplate, queue, report, failure)));
+            }
+
+            long index = 0;
+            while (items.hasNext() && failure.get() == null) {
+                Object item = items.next();
+                int shard;
+                if (keyHash) {
+                    shard = (hash(((Object[]) item)[conf.getKeyIndex()]) & Integer.MAX_VALUE) % parallelism;
+                } else {
+                    shard = (int) (index++ % parallelism);
+                }
+                offer(queues.get(shard), futures.get(shard), item, failure);
+            }
+
+            for (int i = 0; i < parallelism; i++) {
+                offer(queues.get(i), futures.get(i), END, failure);
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        } catch (ExecutionException e) {
+            failure.compareAndSet(null, e.getCause());
+        } finally {
+            pool.shutdownNow();
+            report.setElapsedMillis(System.currentTimeMillis() - begin);
+        }
+
+        Throwable error = failure.get();
+        if (error instanceof PhoenixBatchException) {
+            throw new PhoenixBatchException(error.getMessage(), error.getCause(), report);
+        }
+        if (error != null) {
+            throw new PhoenixBatchException("phoenix bulk load failed", error, report);
+        }
+        return report;
+    }
+
+    /**
+     * 放进分片队列 worker已经退出时不再等待 没有其他失败原因的话记一个失败 这一项不会被导入
+     */
+    private void offer(BlockingQueue<Object> queue, Future<?> worker, Object item, AtomicReference<Throwable> failure)
+            throws InterruptedException {
+        while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+            if (worker.isDone()) {
+                failure.compareAndSet(null, new PhoenixException("phoenix bulk load worker exited, item not loaded"));
+                return;
+            }
+        }
+    }
+
+    private static int hash(Object key) {
+        if (key instanceof byte[]) {
+            return Arrays.hashCode((byte[]) key);
+        }
+        return key == null ? 0 : key.hashCode();
+    }
+
+    public void setListener(BatchReport.BatchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 一个worker 借一个连接 消费自己的分片直到结束标记
+     */
+    private class Worker implements Runnable {
+
+        private final int id;
+
+        private final String sqlTemplate;
+
+        private final BlockingQueue<Object> queue;
+
+        private final BatchReport report;
+
+        private final AtomicReference<Throwable> failure;
+
+        Worker(int id, String sqlTemplate, BlockingQueue<Object> queue, BatchReport report, AtomicReference<Throwable> failure) {
+            this.id = id;
+            this.sqlTemplate = sqlTemplate;
+            this.queue = queue;
+            this.report = report;
+            this.failure = failure;
+        }
+
+        public void run() {
+            PooledConnection conn = null;
+            Statement rawStatement = null;
+            try {
+                conn = phoenixClient.getPool().borrow();
+
+                Statement statement;
+                if (sqlTemplate != null) {
+                    statement = conn.prepareStatement(sqlTemplate);
+                } else {
+                    rawStatement = conn.getConnection().createStatement();
+                    statement = rawStatement;
+                }
+                PhoenixBatchPipeline pipeline = new PhoenixBatchPipeline(conn.getConnection(), statement,
+                        phoenixClient.getBatchConf(), report, id, phoenixClient.getMetricsRegistry(),
+                        PhoenixClient.scopeOf(sqlTemplate));
+
+                while (failure.get() == null) {
+                    Object item = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (item == null) {
+                        continue;
+                    }
+                    if (item == END) {
+                        pipeline.finish();
+                        return;
+                    }
+                    if (sqlTemplate != null) {
+                        pipeline.add((Object[]) item);
+                    } else {
+                        pipeline.add((String) item);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+            } catch (SQLException e) {
+                failure.compareAndSet(null, new PhoenixException("phoenix bulk load error:{}", e));
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                if (rawStatement != null) {
+                    try {
+                        rawStatement.close();
+                    } catch (SQLException e) {
+                        logger.error("PhoenixBulkLoader close statement error :{}", e);
+                    }
+                }
+                phoenixClient.getPool().release(conn);
+            }
+        }
+    }
+}
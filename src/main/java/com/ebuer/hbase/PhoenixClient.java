@@ -1,22 +1,72 @@
 package com.ebuer.hbase;
 
-import com.alibaba.fastjson.JSONArray;
-import com.alibaba.fastjson.JSONObject;
+import com.ebuer.conf.PhoenixBatchConf;
+import com.ebuer.conf.PhoenixBulkLoadConf;
+import com.ebuer.conf.PhoenixExecutorConf;
+import com.ebuer.conf.PhoenixPoolConf;
+import com.ebuer.conf.RetryConf;
+import com.ebuer.conf.TraceConf;
 import com.ebuer.exception.PhoenixException;
-import org.apache.phoenix.jdbc.PhoenixResultSet;
-
+import com.ebuer.hbase.PhoenixConnectionPool.PooledConnection;
+import com.ebuer.metrics.MetricsRegistry;
+import com.ebuer.resilience.RetryPolicy;
+import com.ebuer.trace.OperationContext;
+import com.ebuer.trace.OperationListener;
+import com.ebuer.trace.OperationTracer;
+import com.ebuer.util.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+
+import java.io.*;
+import java.nio.charset.Charset;
 import java.sql.*;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * 利用Phoenix访问Hbase
+ * <p>
+ * 连接从内部的有界连接池借用，用完归还，不再每次执行都新建连接；
+ * 客户端不用了需要close释放连接池，spring中作为DisposableBean 容器销毁时自动调用
+ * <p>
+ * 每个操作的耗时、批量大小和失败次数记到MetricsRegistry 作用域是phoenix.{表名}，表名从sql里的into/from/update后面取，
+ * 取不到(以及借连接、建连)时是phoenix 默认实现导出到JMX 见com.ebuer.hutils:type=Operation,scope="phoenix.USER"
+ * 超过TraceConf.slowOperationMillis的sql打慢日志 分connect(借连接)/execute(executeQuery)/materialize(遍历结果集 含懒加载的扫描)三段耗时
+ * <p>
+ * 新建物理连接和查询遇到可恢复的错误(超时、regionserver不可用等)按RetryConf退避重试(默认maxAttempts=1不重试)；
+ * 查询只在开始读取结果之前失败时重试，写操作不重试
  *
  * @author xu.qiang
  * @date 2016/12/30.
  */
-public class PhoenixClient {
+public class PhoenixClient implements Closeable, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhoenixClient.class);
+
+    /**
+     * phoenix操作在MetricsRegistry里的作用域 sql里取不到表名时使用
+     */
+    static final String METRICS_SCOPE = "phoenix";
+
+    /**
+     * upsert into / delete from / select ... from / update 后面的表名 带双引号时保留大小写
+     */
+    private static final Pattern TABLE_PATTERN = Pattern.compile(
+            "\\b(?:into|from|update)\\s+(\"[^\"]+\"(?:\\.\"[^\"]+\")?|[\\w.]+)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * sql模板 -> 作用域 带参数的sql模板数量有限 拼接字面量的sql会很多 满了之后不再缓存
+     */
+    private static final int MAX_CACHED_SCOPES = 1024;
+
+    private static final ConcurrentMap<String, String> SCOPES = new ConcurrentHashMap<String, String>();
 
     /**
      * zookeeper的master-host
@@ -28,152 +78,430 @@ public class PhoenixClient {
      */
     private int port;
 
+    /**
+     * 连接池配置
+     */
+    private PhoenixPoolConf poolConf = new PhoenixPoolConf();
+
+    /**
+     * 查询时每次从服务端拉取的行数
+     */
+    private int fetchSize = 1000;
+
+    /**
+     * 批量写入的切批配置
+     */
+    private PhoenixBatchConf batchConf = new PhoenixBatchConf();
+
+    private volatile PhoenixConnectionPool pool;
+
+    /**
+     * 建连线程池配置
+     */
+    private PhoenixExecutorConf executorConf = new PhoenixExecutorConf();
+
     // Phoenix DB不支持直接设置连接超时 所以这里使用线程池的方式来控制数据库连接超时
-    private static ThreadPoolExecutor threadPool = null;
+    // 每个客户端一个 可以外部注入 注入的线程池由外部负责关闭
+    private volatile ExecutorService executor;
+
+    private boolean ownExecutor = false;
+
+    /**
+     * 操作指标、慢操作日志和OperationListener回调
+     */
+    private final OperationTracer tracer = new OperationTracer();
+
+    /**
+     * 连接和查询的重试
+     */
+    private volatile RetryPolicy retryPolicy = new RetryPolicy(new RetryConf());
 
     /**
-     * 利用静态块的方式初始化Driver 以及线程池
+     * 类型化查询的映射缓存 key为 类名 + sql
+     */
+    private final ConcurrentMap<String, PhoenixBeanMapper<?>> beanMappers = new ConcurrentHashMap<String, PhoenixBeanMapper<?>>();
+
+    /**
+     * 利用静态块的方式初始化Driver
      */
     static {
         try {
             Class.forName("org.apache.phoenix.jdbc.PhoenixDriver");
-
-            threadPool = new ThreadPoolExecutor(4,
-                    Runtime.getRuntime().availableProcessors(),
-                    10L,
-                    TimeUnit.SECONDS,
-                    new LinkedBlockingDeque<Runnable>(10),
-                    new RejectedExecutionHandler() {
-                        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
-                            try {
-                                executor.getQueue().put(r);
-                            } catch (InterruptedException e) {
-                                e.printStackTrace();
-                            }
-                        }
-                    });
-
-            threadPool.allowCoreThreadTimeOut(true);
         } catch (ClassNotFoundException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * 获取建连线程池 没有注入时按executorConf创建
+     *
+     * @return
+     */
+    private ExecutorService getExecutor() {
+        ExecutorService current = executor;
+        if (current == null) {
+            synchronized (this) {
+                current = executor;
+                if (current == null) {
+                    current = createExecutor(executorConf);
+                    ownExecutor = true;
+                    executor = current;
+                }
+            }
+        }
+        return current;
+    }
 
     /**
-     * 获取一个Hbase-Phoenix的连接
+     * 按配置创建线程池
+     *
+     * @param conf
+     * @return
+     */
+    static ExecutorService createExecutor(PhoenixExecutorConf conf) {
+        if (conf.isUseVirtualThreads()) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (Exception e) {
+                logger.warn("PhoenixClient virtual threads not supported, fall back to thread pool");
+            }
+        }
+
+        RejectedExecutionHandler handler = conf.getRejectPolicy() == PhoenixExecutorConf.RejectPolicy.CALLER_RUNS
+                ? new ThreadPoolExecutor.CallerRunsPolicy()
+                : new ThreadPoolExecutor.AbortPolicy();
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(conf.getCorePoolSize(),
+                Math.max(conf.getCorePoolSize(), conf.getMaxPoolSize()),
+                conf.getKeepAliveMillis(),
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(conf.getQueueCapacity()),
+                new NamedThreadFactory("phoenix-connect"),
+                handler);
+        threadPool.allowCoreThreadTimeOut(true);
+        return threadPool;
+    }
+
+    /**
+     * 新建一个Hbase-Phoenix的物理连接
      *
      * @param host zookeeper的master-host
      * @param port zookeeper的master-port
      * @return
      */
-    private Connection getConnection(String host, int port) {
-        Connection cc = null;
-        final String url = "jdbc:phoenix:" + host + ":" + port;
+    private Connection connect(String host, int port) throws SQLException {
+        String url = "jdbc:phoenix:" + host + ":" + port;
 
-        if (cc == null) {
+        RetryPolicy policy = retryPolicy;
+        policy.onCall();
+        for (int attempt = 1; ; attempt++) {
+            long begin = System.nanoTime();
             try {
-                Callable<Connection> call = new Callable<Connection>() {
-                    public Connection call() throws Exception {
-                        return DriverManager.getConnection(url);
-                    }
-                };
-                Future<Connection> future = threadPool.submit(call);
-                // 如果在30s钟之内，还没得到 Connection 对象，则认为连接超时，不继续阻塞，防止服务夯死
-                cc = future.get(30, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            } catch (ExecutionException e) {
-                e.printStackTrace();
-            } catch (TimeoutException e) {
-                e.printStackTrace();
+                return connectOnce(url);
+            } catch (SQLException e) {
+                if (!retry(policy, "connect", attempt, begin, e)) {
+                    throw e;
+                }
+            } catch (PhoenixException e) {
+                if (!retry(policy, "connect", attempt, begin, e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 尝试一次新建连接 超过connectTimeoutMillis放弃
+     *
+     * @param url
+     * @return
+     * @throws SQLException
+     */
+    private Connection connectOnce(final String url) throws SQLException {
+        Future<Connection> future = null;
+        long begin = System.nanoTime();
+        boolean success = false;
+        try {
+            Callable<Connection> call = new Callable<Connection>() {
+                public Connection call() throws Exception {
+                    return DriverManager.getConnection(url);
+                }
+            };
+            future = getExecutor().submit(call);
+            // 如果在超时时间之内，还没得到 Connection 对象，则认为连接超时，不继续阻塞，防止服务夯死
+            Connection connection = future.get(poolConf.getConnectTimeoutMillis(), TimeUnit.MILLISECONDS);
+            success = true;
+            return connection;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PhoenixException("phoenix connect interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new PhoenixException("phoenix connect error", e.getCause());
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new PhoenixException("phoenix execSql connect time out", e);
+        } catch (RejectedExecutionException e) {
+            throw new PhoenixException("phoenix connect rejected, connect executor is saturated", e);
+        } finally {
+            record("connect", begin, 0, success);
+        }
+    }
+
+    /**
+     * 获取连接池 第一次使用时创建
+     *
+     * @return
+     */
+    public PhoenixConnectionPool getPool() {
+        PhoenixConnectionPool current = pool;
+        if (current == null) {
+            synchronized (this) {
+                current = pool;
+                if (current == null) {
+                    current = new PhoenixConnectionPool(poolConf, new PhoenixConnectionPool.Connector() {
+                        public Connection connect() throws SQLException {
+                            return PhoenixClient.this.connect(host, port);
+                        }
+                    });
+                    pool = current;
+                }
             }
         }
-        return cc;
+        return current;
+    }
+
+    /**
+     * 从连接池借一个Hbase-Phoenix的连接 超时抛PhoenixException
+     *
+     * @return
+     */
+    private PooledConnection getConnection() {
+        long begin = System.nanoTime();
+        boolean success = false;
+        try {
+            PooledConnection conn = getPool().borrow();
+            success = true;
+            return conn;
+        } finally {
+            record("acquire", begin, 0, success);
+        }
     }
 
     /**
      * 根据sql查询hbase中的内容;根据phoenix支持的SQL格式，查询Hbase的数据，并返回json格式的数据
+     * 结果集较大时请使用流式的execQuery
      *
      * @param phoenixSQL sql语句
      * @return
      */
     public String execQuerySql(String phoenixSQL) {
+        StringWriter writer = new StringWriter();
+        execQuery(phoenixSQL, writer);
+        return writer.toString();
+    }
 
-        Connection conn = null;
-        Statement stmt = null;
-        try {
-            // 获取一个Phoenix DB连接
-            conn = this.getConnection(host, port);
-            if (conn == null) {
-                throw new PhoenixException("phoenix execSql connect time out");
+    /**
+     * 流式查询 逐行以json写到writer 格式同execQuerySql 内存占用和结果集大小无关
+     *
+     * @param phoenixSQL sql语句
+     * @param writer
+     * @return 行数
+     */
+    public long execQuery(String phoenixSQL, Writer writer) {
+        return execQuery(phoenixSQL, new JsonResultSetWriter(writer));
+    }
+
+    /**
+     * 流式查询 逐行以json写到输出流 UTF-8编码 不关闭输出流
+     *
+     * @param phoenixSQL sql语句
+     * @param out
+     * @return 行数
+     */
+    public long execQuery(String phoenixSQL, OutputStream out) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, Charset.forName("UTF-8")));
+        return execQuery(phoenixSQL, writer);
+    }
+
+    /**
+     * 流式查询 逐行回调handler
+     *
+     * @param phoenixSQL sql语句
+     * @param handler
+     */
+    public void execQuery(String phoenixSQL, final RowCallbackHandler handler) {
+        execQuery(phoenixSQL, new ResultSetExtractor<Void>() {
+            public Void extractData(ResultSet set) throws SQLException {
+                while (set.next()) {
+                    handler.processRow(set);
+                }
+                return null;
             }
+        });
+    }
 
-            // 准备查询
-            stmt = conn.createStatement();
-            PhoenixResultSet set = (PhoenixResultSet) stmt.executeQuery(phoenixSQL);
+    /**
+     * 查询的通用执行器 内部管理好连接和statement 外部只需要处理ResultSet
+     *
+     * @param phoenixSQL sql语句
+     * @param extractor
+     * @return
+     */
+    public <T> T execQuery(String phoenixSQL, ResultSetExtractor<T> extractor) {
+        return executeQuery("execQuery", phoenixSQL, null, extractor);
+    }
 
-            // 查询出来的列是不固定的，所以这里通过遍历的方式获取列名
-            ResultSetMetaData meta = set.getMetaData();
-            ArrayList<String> cols = new ArrayList<String>();
+    /**
+     * 参数化查询 使用连接上缓存的PreparedStatement 外部只需要处理ResultSet
+     *
+     * @param sql       带?占位符的sql模板
+     * @param extractor
+     * @param params    按顺序绑定的参数
+     * @return
+     */
+    public <T> T query(String sql, ResultSetExtractor<T> extractor, Object... params) {
+        return executeQuery("query", sql, params == null ? new Object[0] : params, extractor);
+    }
 
-            // 把最终数据都转成JSON返回
-            JSONArray jsonArr = new JSONArray();
-            while (set.next()) {
-                if (cols.size() == 0) {
-                    for (int i = 1, count = meta.getColumnCount(); i <= count; i++) {
-                        cols.add(meta.getColumnName(i));
-                    }
-                }
+    /**
+     * 查询的执行器 在extractor开始读取结果之前失败时可以重试 之后失败不重试(extractor可能已经输出了部分结果)
+     *
+     * @param operation 指标里的操作名
+     * @param sql
+     * @param params    为null时用普通Statement执行原始sql 否则用连接上缓存的PreparedStatement
+     * @param extractor
+     * @return
+     */
+    private <T> T executeQuery(String operation, String sql, Object[] params, ResultSetExtractor<T> extractor) {
+        RetryPolicy policy = retryPolicy;
+        policy.onCall();
 
-                JSONObject json = new JSONObject();
-                for (int i = 0, len = cols.size(); i < len; i++) {
-                    json.put(cols.get(i), set.getString(cols.get(i)));
+        OperationContext context = tracer.begin(scopeOf(sql), operation, sql, 0);
+        boolean success = false;
+        try {
+            for (int attempt = 1; ; attempt++) {
+                long attemptBegin = System.nanoTime();
+                PooledConnection conn = null;
+                Statement stmt = null;
+                boolean extracting = false;
+                try {
+                    // 获取一个Phoenix DB连接
+                    conn = this.getConnection();
+                    context.markConnected();
+
+                    ResultSet set;
+                    if (params == null) {
+                        stmt = conn.getConnection().createStatement();
+                        stmt.setFetchSize(fetchSize);
+                        set = stmt.executeQuery(sql);
+                    } else {
+                        PreparedStatement statement = conn.prepareStatement(sql);
+                        statement.setFetchSize(fetchSize);
+                        setParameters(statement, params);
+                        set = statement.executeQuery();
+                    }
+                    // phoenix在rs.next()里才按fetchSize拉取扫描结果 之后的扫描rpc算在materialize里
+                    context.markExecuted();
+                    extracting = true;
+                    try {
+                        T result = extractor.extractData(set);
+                        success = true;
+                        return result;
+                    } finally {
+                        set.close();
+                    }
+                } catch (SQLException e) {
+                    if (extracting || !retry(policy, operation, attempt, attemptBegin, e)) {
+                        context.fail(e);
+                        throw new PhoenixException("phoenix " + operation + " error:{}", e);
+                    }
+                } finally {
+                    release(conn, stmt);
                 }
-                jsonArr.add(json);
             }
-            // 结果封装
-            JSONObject data = new JSONObject();
-            data.put("data", jsonArr);
-            return data.toString();
-        } catch (SQLException e) {
-            throw new PhoenixException("phoenix querySQl error:{}", e);
         } finally {
-            release(conn, stmt);
+            tracer.end(context, success);
         }
     }
 
     /**
-     * 批量执行 内部每1024个sql提交一个批次 最后一次全部提交
+     * 参数化查询 每行交给rowMapper转换 结果按原生类型读取 不经过json
+     *
+     * @param sql       带?占位符的sql模板
+     * @param rowMapper
+     * @param params    按顺序绑定的参数
+     * @return
+     */
+    public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... params) {
+        return query(sql, new RowMapperResultSetExtractor<T>(rowMapper), params);
+    }
+
+    /**
+     * 参数化查询 每行映射成一个type对象 列名和属性名忽略大小写和下划线匹配
+     * 列下标到setter的绑定按 sql + type 缓存 之后同样的查询不再反射查找
+     * sql里的值要用?占位符传 拼接字面量会让缓存随sql无限增长
+     *
+     * @param sql    带?占位符的sql模板
+     * @param type   需要有无参构造
+     * @param params 按顺序绑定的参数
+     * @return
+     */
+    public <T> List<T> query(String sql, Class<T> type, Object... params) {
+        return query(sql, getBeanMapper(sql, type), params);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> PhoenixBeanMapper<T> getBeanMapper(String sql, Class<T> type) {
+        String key = type.getName() + '\n' + sql;
+        PhoenixBeanMapper<T> mapper = (PhoenixBeanMapper<T>) beanMappers.get(key);
+        if (mapper == null) {
+            mapper = new PhoenixBeanMapper<T>(type);
+            PhoenixBeanMapper<T> exist = (PhoenixBeanMapper<T>) beanMappers.putIfAbsent(key, mapper);
+            if (exist != null) {
+                mapper = exist;
+            }
+        }
+        return mapper;
+    }
+
+    /**
+     * 批量执行 按PhoenixBatchConf的行数/字节数切批 每个批次执行完立即提交
+     * 某个批次失败时之前的批次已经提交；continueOnError=false时抛PhoenixBatchException
      *
      * @param sqlList
+     * @return 每个批次的结果
      */
-    public void execBatchSql(List<String> sqlList) {
-        Connection conn = null;
+    public BatchReport execBatchSql(List<String> sqlList) {
+        PooledConnection conn = null;
         Statement stmt = null;
+        long begin = System.currentTimeMillis();
+        String firstSql = sqlList.isEmpty() ? null : sqlList.get(0);
+        OperationContext context = tracer.begin(scopeOf(firstSql), "execBatchSql", firstSql, sqlList.size());
+        boolean success = false;
+        BatchReport report = new BatchReport();
         try {
             // 获取一个Phoenix DB连接
-            conn = this.getConnection(host, port);
-            if (conn == null) {
-                throw new PhoenixException("phoenix execSql connect time out");
-            }
-
-            Statement statement = conn.createStatement();
-            int size = sqlList.size();
-            for (int index = 0; index < size; index++) {
-
-                statement.addBatch(sqlList.get(index));
-                if (index == 1024) {
-                    statement.executeBatch();
-                }
+            conn = this.getConnection();
+            context.markConnected();
+
+            stmt = conn.getConnection().createStatement();
+            PhoenixBatchPipeline pipeline = new PhoenixBatchPipeline(conn.getConnection(), stmt, batchConf, report,
+                    tracer.getMetricsRegistry(), context.getScope());
+            for (String sql : sqlList) {
+                pipeline.add(sql);
             }
-
-            statement.executeBatch();
-            conn.commit();
+            pipeline.finish();
+            success = true;
+            return report;
         } catch (SQLException e) {
+            context.fail(e);
             throw new PhoenixException("phoenix querySQl error:{}", e);
         } finally {
+            report.setElapsedMillis(System.currentTimeMillis() - begin);
             release(conn, stmt);
+            tracer.end(context, success);
         }
     }
 
@@ -184,35 +512,195 @@ public class PhoenixClient {
      */
     public void execSql(String... sqls) {
 
-        Connection conn = null;
+        PooledConnection conn = null;
         Statement stmt = null;
+        String firstSql = sqls.length == 0 ? null : sqls[0];
+        OperationContext context = tracer.begin(scopeOf(firstSql), "execSql", firstSql, sqls.length);
+        boolean success = false;
         try {
             // 获取一个Phoenix DB连接
-            conn = this.getConnection(host, port);
-            if (conn == null) {
-                throw new PhoenixException("phoenix execSql connect time out");
-            }
+            conn = this.getConnection();
+            context.markConnected();
 
             for (String sql : sqls) {
-                PreparedStatement preparedStatement = conn.prepareStatement(sql);
-                preparedStatement.execute();
+                PreparedStatement preparedStatement = conn.getConnection().prepareStatement(sql);
+                try {
+                    preparedStatement.execute();
+                } finally {
+                    preparedStatement.close();
+                }
             }
 
-            conn.commit();
+            conn.getConnection().commit();
+            success = true;
         } catch (SQLException e) {
+            context.fail(e);
             throw new PhoenixException("phoenix querySQl error:{}", e);
         } finally {
             release(conn, stmt);
+            tracer.end(context, success);
+        }
+    }
+
+    /**
+     * 参数化执行一条upsert/delete 同一个sql模板在连接上只解析一次
+     * example: executeUpdate("upsert into \"p_table_01\" values(?,?,?)", "rk_1", "xuqiang", "man")
+     *
+     * @param sql    带?占位符的sql模板
+     * @param params 参数 按占位符顺序
+     * @return 影响的行数
+     */
+    public int executeUpdate(String sql, Object... params) {
+        PooledConnection conn = null;
+        OperationContext context = tracer.begin(scopeOf(sql), "executeUpdate", sql, 1);
+        boolean success = false;
+        try {
+            // 获取一个Phoenix DB连接
+            conn = this.getConnection();
+            context.markConnected();
+
+            PreparedStatement statement = conn.prepareStatement(sql);
+            setParameters(statement, params);
+            int count = statement.executeUpdate();
+
+            conn.getConnection().commit();
+            success = true;
+            return count;
+        } catch (SQLException e) {
+            context.fail(e);
+            throw new PhoenixException("phoenix executeUpdate error:{}", e);
+        } finally {
+            release(conn, null);
+            tracer.end(context, success);
         }
     }
 
     /**
-     * 释放资源
+     * 参数化批量执行 一个sql模板配多行参数 用同一个PreparedStatement做jdbc batch
+     * 按PhoenixBatchConf的行数/字节数切批 每个批次执行完立即提交
+     *
+     * @param sql    带?占位符的sql模板
+     * @param params 每个元素是一行参数
+     * @return 每个批次的结果
+     */
+    public BatchReport executeBatch(String sql, List<Object[]> params) {
+        PooledConnection conn = null;
+        long begin = System.currentTimeMillis();
+        OperationContext context = tracer.begin(scopeOf(sql), "executeBatch", sql, params.size());
+        boolean success = false;
+        BatchReport report = new BatchReport();
+        try {
+            // 获取一个Phoenix DB连接
+            conn = this.getConnection();
+            context.markConnected();
+
+            PreparedStatement statement = conn.prepareStatement(sql);
+            PhoenixBatchPipeline pipeline = new PhoenixBatchPipeline(conn.getConnection(), statement, batchConf, report,
+                    tracer.getMetricsRegistry(), context.getScope());
+            for (Object[] row : params) {
+                pipeline.add(row);
+            }
+            pipeline.finish();
+            success = true;
+            return report;
+        } catch (SQLException e) {
+            context.fail(e);
+            throw new PhoenixException("phoenix executeBatch error:{}", e);
+        } finally {
+            report.setElapsedMillis(System.currentTimeMillis() - begin);
+            release(conn, null);
+            tracer.end(context, success);
+        }
+    }
+
+    /**
+     * 并行导入 把参数分到多个连接上并行切批提交 详见PhoenixBulkLoader
+     *
+     * @param sql          带?占位符的sql模板
+     * @param rows         每个元素是一行参数
+     * @param bulkLoadConf 并行度和分片方式
+     * @return 所有worker的批次结果
+     */
+    public BatchReport bulkLoad(String sql, Iterable<Object[]> rows, PhoenixBulkLoadConf bulkLoadConf) {
+        return new PhoenixBulkLoader(this, bulkLoadConf).load(sql, rows);
+    }
+
+    /**
+     * 按顺序设置参数
+     *
+     * @param statement
+     * @param params
+     * @throws SQLException
+     */
+    static void setParameters(PreparedStatement statement, Object[] params) throws SQLException {
+        if (params == null) {
+            return;
+        }
+        for (int i = 0; i < params.length; i++) {
+            if (params[i] == null) {
+                statement.setNull(i + 1, Types.NULL);
+            } else {
+                statement.setObject(i + 1, params[i]);
+            }
+        }
+    }
+
+    /**
+     * 判断失败能否重试 能重试时记一次operation.retry并退避等待
+     *
+     * @return false表示不可重试、次数或预算用完、等待被中断
+     */
+    private boolean retry(RetryPolicy policy, String operation, int attempt, long attemptBegin, Exception e) {
+        if (!RetryPolicy.isRetryable(e) || !policy.allowRetry(attempt)) {
+            return false;
+        }
+        record(operation + ".retry", attemptBegin, 0, false);
+        logger.warn("phoenix {} failed, retry attempt {} :{}", new Object[]{operation, attempt + 1, e.toString()});
+        return policy.backoff(attempt);
+    }
+
+    /**
+     * sql对应的指标作用域 phoenix.{表名} 取不到表名时为phoenix
+     * 不带双引号的表名phoenix按大写处理 这里同样转成大写
+     *
+     * @param sql
+     * @return
+     */
+    static String scopeOf(String sql) {
+        if (sql == null) {
+            return METRICS_SCOPE;
+        }
+        String scope = SCOPES.get(sql);
+        if (scope == null) {
+            scope = parseScope(sql);
+            if (SCOPES.size() < MAX_CACHED_SCOPES) {
+                SCOPES.putIfAbsent(sql, scope);
+            }
+        }
+        return scope;
+    }
+
+    private static String parseScope(String sql) {
+        Matcher matcher = TABLE_PATTERN.matcher(sql);
+        if (!matcher.find()) {
+            return METRICS_SCOPE;
+        }
+        String table = matcher.group(1);
+        table = table.indexOf('"') >= 0 ? table.replace("\"", "") : table.toUpperCase();
+        return METRICS_SCOPE + "." + table;
+    }
+
+    private void record(String operation, long beginNanos, int batchSize, boolean success) {
+        tracer.record(METRICS_SCOPE, operation, beginNanos, batchSize, success);
+    }
+
+    /**
+     * 释放资源 连接归还给连接池
      *
      * @param conn
      * @param stmt
      */
-    private void release(Connection conn, Statement stmt) {
+    private void release(PooledConnection conn, Statement stmt) {
         if (stmt != null) {
             try {
                 stmt.close();
@@ -221,14 +709,26 @@ public class PhoenixClient {
             }
         }
         if (conn != null) {
-            try {
-                conn.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
+            getPool().release(conn);
         }
     }
 
+    /**
+     * 关闭连接池和自己创建的建连线程池 借出的连接归还时关闭
+     */
+    public synchronized void close() {
+        if (pool != null) {
+            pool.close();
+        }
+        if (executor != null && ownExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    public void destroy() throws Exception {
+        close();
+    }
+
     public String getHost() {
         return host;
     }
@@ -245,4 +745,105 @@ public class PhoenixClient {
         this.port = port;
     }
 
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public PhoenixBatchConf getBatchConf() {
+        return batchConf;
+    }
+
+    public void setBatchConf(PhoenixBatchConf batchConf) {
+        this.batchConf = batchConf;
+    }
+
+    public PhoenixExecutorConf getExecutorConf() {
+        return executorConf;
+    }
+
+    public void setExecutorConf(PhoenixExecutorConf executorConf) {
+        this.executorConf = executorConf;
+    }
+
+    /**
+     * 注入建连线程池 由外部负责关闭 之前自己创建的线程池在这里关闭
+     *
+     * @param executor
+     */
+    public synchronized void setExecutor(ExecutorService executor) {
+        if (this.executor != null && ownExecutor && this.executor != executor) {
+            // 已经提交的建连任务继续执行完
+            this.executor.shutdown();
+        }
+        this.executor = executor;
+        this.ownExecutor = false;
+    }
+
+    public PhoenixPoolConf getPoolConf() {
+        return poolConf;
+    }
+
+    public void setPoolConf(PhoenixPoolConf poolConf) {
+        this.poolConf = poolConf;
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return tracer.getMetricsRegistry();
+    }
+
+    /**
+     * 替换指标实现 传null表示不统计
+     *
+     * @param metricsRegistry
+     */
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        tracer.setMetricsRegistry(metricsRegistry);
+    }
+
+    public TraceConf getTraceConf() {
+        return tracer.getTraceConf();
+    }
+
+    public RetryConf getRetryConf() {
+        return retryPolicy.getConf();
+    }
+
+    /**
+     * 替换重试配置 重试预算重新计算
+     *
+     * @param retryConf
+     */
+    public void setRetryConf(RetryConf retryConf) {
+        this.retryPolicy = new RetryPolicy(retryConf);
+    }
+
+    public void setTraceConf(TraceConf traceConf) {
+        tracer.setTraceConf(traceConf);
+    }
+
+    public void addOperationListener(OperationListener listener) {
+        tracer.addListener(listener);
+    }
+
+    public void removeOperationListener(OperationListener listener) {
+        tracer.removeListener(listener);
+    }
+
+    public List<OperationListener> getOperationListeners() {
+        return tracer.getListeners();
+    }
+
+    /**
+     * spring注入用 替换掉已有的listener
+     *
+     * @param listeners
+     */
+    public void setOperationListeners(List<OperationListener> listeners) {
+        tracer.setListeners(listeners);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,374 @@
+package com.ebuer.hbase;
+
+import com.ebuer.conf.PhoenixPoolConf;
+import com.ebuer.exception.PhoenixException;
+import com.ebuer.util.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Phoenix的有界连接池
+ * <p>
+ * 1、借出时校验连接是否可用，不可用或者超过最长存活时间的直接销毁
+ * 2、归还时rollback掉没有commit的mutation，保证下一个使用者拿到干净的连接
+ * 3、后台定时回收空闲太久的连接，并补足minIdle
+ * 4、借连接最多等borrowTimeoutMillis，超时抛PhoenixException
+ * 5、每个连接缓存PreparedStatement，同一个sql模板只解析一次，连接销毁时一起关闭
+ */
+public class PhoenixConnectionPool implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhoenixConnectionPool.class);
+
+    /**
+     * 新建物理连接
+     */
+    public interface Connector {
+        Connection connect() throws SQLException;
+    }
+
+    private final PhoenixPoolConf conf;
+
+    private final Connector connector;
+
+    /**
+     * 借出的连接数不超过maxSize
+     */
+    private final Semaphore permits;
+
+    /**
+     * 空闲连接 队头是最近归还的
+     */
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<PooledConnection>();
+
+    private final ScheduledExecutorService evictor;
+
+    private volatile boolean closed = false;
+
+    /*统计*/
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong borrowTimeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong validationFailedCount = new AtomicLong();
+    private final AtomicLong borrowWaitNanos = new AtomicLong();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+
+
+    public PhoenixConnectionPool(PhoenixPoolConf conf, Connector connector) {
+        this.conf = conf;
+        this.connector = connector;
+        this.permits = new Semaphore(conf.getMaxSize(), true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("phoenix-pool-evictor"));
+        this.evictor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                evict();
+            }
+        }, conf.getEvictionIntervalMillis(), conf.getEvictionIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 借一个连接 用完必须release
+     *
+     * @return
+     */
+    public PooledConnection borrow() {
+        if (closed) {
+            throw new PhoenixException("phoenix connection pool has been closed");
+        }
+
+        long begin = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(conf.getBorrowTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                borrowTimeoutCount.incrementAndGet();
+                throw new PhoenixException("phoenix borrow connection time out");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PhoenixException("phoenix borrow connection interrupted", e);
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isExpired(pooled) || !isValid(pooled)) {
+                    destroy(pooled);
+                    continue;
+                }
+                break;
+            }
+            if (pooled == null) {
+                pooled = create();
+            }
+
+            long wait = System.nanoTime() - begin;
+            borrowCount.incrementAndGet();
+            borrowWaitNanos.addAndGet(wait);
+            updateMax(maxBorrowWaitNanos, wait);
+            return pooled;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 归还连接
+     *
+     * @param pooled
+     */
+    public void release(PooledConnection pooled) {
+        if (pooled == null) {
+            return;
+        }
+
+        try {
+            boolean broken = false;
+            try {
+                if (!pooled.getConnection().getAutoCommit()) {
+                    pooled.getConnection().rollback();
+                }
+            } catch (SQLException e) {
+                broken = true;
+            }
+
+            if (closed || broken || isExpired(pooled)) {
+                destroy(pooled);
+            } else {
+                pooled.touch();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 回收空闲太久和过期的连接 再补足minIdle
+     */
+    void evict() {
+        if (closed) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> oldest = idle.descendingIterator();
+        while (oldest.hasNext()) {
+            PooledConnection pooled = oldest.next();
+            boolean idleTooLong = idle.size() > conf.getMinIdle()
+                    && now - pooled.getLastUsedAt() > conf.getIdleTimeoutMillis();
+            if ((idleTooLong || isExpired(pooled)) && idle.remove(pooled)) {
+                destroy(pooled);
+            }
+        }
+
+        while (!closed && idle.size() < conf.getMinIdle()
+                && idle.size() + getActiveCount() < conf.getMaxSize() && permits.tryAcquire()) {
+            try {
+                idle.offerLast(create());
+            } catch (RuntimeException e) {
+                logger.error("PhoenixConnectionPool fill minIdle error :{}", e);
+                break;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private PooledConnection create() {
+        try {
+            Connection connection = connector.connect();
+            createdCount.incrementAndGet();
+            return new PooledConnection(connection, conf.getStatementCacheSize());
+        } catch (SQLException e) {
+            throw new PhoenixException("phoenix connect error", e);
+        }
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            if (pooled.getConnection().isValid(conf.getValidationTimeoutSeconds())) {
+                return true;
+            }
+        } catch (SQLException e) {
+            logger.warn("PhoenixConnectionPool validate error :{}", e);
+        }
+        validationFailedCount.incrementAndGet();
+        return false;
+    }
+
+    private boolean isExpired(PooledConnection pooled) {
+        return conf.getMaxLifetimeMillis() > 0
+                && System.currentTimeMillis() - pooled.getCreatedAt() > conf.getMaxLifetimeMillis();
+    }
+
+    private void destroy(PooledConnection pooled) {
+        destroyedCount.incrementAndGet();
+        pooled.closeStatements();
+        try {
+            pooled.getConnection().close();
+        } catch (SQLException e) {
+            logger.warn("PhoenixConnectionPool close connection error :{}", e);
+        }
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+        }
+    }
+
+    /**
+     * 关闭连接池 空闲连接立即关闭 借出的连接归还时关闭
+     */
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getActiveCount() {
+        return conf.getMaxSize() - permits.availablePermits();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    public long getBorrowTimeoutCount() {
+        return borrowTimeoutCount.get();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    public long getDestroyedCount() {
+        return destroyedCount.get();
+    }
+
+    public long getValidationFailedCount() {
+        return validationFailedCount.get();
+    }
+
+    /**
+     * 平均借连接等待时间 单位微秒
+     */
+    public long getAvgBorrowWaitMicros() {
+        long count = borrowCount.get();
+        return count == 0 ? 0 : borrowWaitNanos.get() / count / 1000;
+    }
+
+    /**
+     * 最长借连接等待时间 单位微秒
+     */
+    public long getMaxBorrowWaitMicros() {
+        return maxBorrowWaitNanos.get() / 1000;
+    }
+
+    /**
+     * 池中的连接
+     */
+    public static class PooledConnection {
+
+        private final Connection connection;
+
+        private final long createdAt;
+
+        private volatile long lastUsedAt;
+
+        /**
+         * sql模板 -> PreparedStatement 同一时间只有一个借用方 不需要同步
+         */
+        private final LinkedHashMap<String, PreparedStatement> statements;
+
+        PooledConnection(Connection connection, int statementCacheSize) {
+            this.connection = connection;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+            final int maxStatements = Math.max(1, statementCacheSize);
+            this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() > maxStatements) {
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        /**
+         * 获取sql对应的PreparedStatement 有缓存时复用 参数和batch已清空
+         * 不要close返回的statement 由连接统一管理
+         *
+         * @param sql
+         * @return
+         * @throws SQLException
+         */
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement != null) {
+                statement.clearParameters();
+                statement.clearBatch();
+                return statement;
+            }
+
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+            return statement;
+        }
+
+        void closeStatements() {
+            for (PreparedStatement statement : statements.values()) {
+                closeQuietly(statement);
+            }
+            statements.clear();
+        }
+
+        private static void closeQuietly(PreparedStatement statement) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                logger.warn("PhoenixConnectionPool close statement error :{}", e);
+            }
+        }
+
+        void touch() {
+            lastUsedAt = System.currentTimeMillis();
+        }
+
+        /**
+         * 物理连接 不要close 用完归还给连接池
+         */
+        public Connection getConnection() {
+            return connection;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        public long getLastUsedAt() {
+            return lastUsedAt;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.ebuer.hbase;
+
+import com.ebuer.conf.RoutedWriteConf;
+import com.ebuer.exception.CircuitBreakerOpenException;
+import com.ebuer.exception.HbaseComponentException;
+import com.ebuer.exception.HbaseWriteException;
+import com.ebuer.resilience.CircuitBreaker;
+import com.ebuer.resilience.RetryPolicy;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 按regionserver分组写入
+ * <p>
+ * 1、用RegionLocator把put按目标regionserver分组，每组在自己的线程和Table上写，组内再按maxBatchSize切批
+ * 2、一个regionserver慢只拖慢自己那组，整体耗时接近最慢的单个server而不是所有批次串行之和
+ * 3、失败时只收集失败的行(RetriesExhaustedWithDetailsException里的行)，重新定位region后重试
+ * 列族不存在之类不可重试的行(RetryPolicy.isRetryable)直接记为失败 不参与后面几轮
+ * 4、每轮写之前检查表的熔断器 一轮算一次调用
+ * 5、加盐表在这里加盐，报告里的失败行是调用方传入的原始put
+ */
+class RegionRoutedWriter {
+
+    private final HbaseClient hbaseClient;
+
+    private final TableName tableName;
+
+    private final RoutedWriteConf conf;
+
+    private final ExecutorService executor;
+
+    /**
+     * 不是加盐表时为null
+     */
+    private final SaltedKeyCodec codec;
+
+    /**
+     * 关闭了熔断时为null
+     */
+    private final CircuitBreaker breaker;
+
+
+    RegionRoutedWriter(HbaseClient hbaseClient, String tableName, RoutedWriteConf conf, ExecutorService executor,
+                       SaltedKeyCodec codec, CircuitBreaker breaker) {
+        this.hbaseClient = hbaseClient;
+        this.tableName = TableName.valueOf(tableName);
+        this.conf = conf;
+        this.executor = executor;
+        this.codec = codec;
+        this.breaker = breaker;
+    }
+
+    /**
+     * @param puts 原始put 加盐表在这里加盐
+     * @return
+     * @throws IOException 定位region失败
+     * @throws CircuitBreakerOpenException 第一轮之前熔断器就是打开的
+     */
+    RoutedWriteReport write(List<Put> puts) throws IOException {
+        long begin = System.currentTimeMillis();
+        RoutedWriteReport report = new RoutedWriteReport(puts.size());
+
+        // 加盐后的put -> 原始put 失败的行按原始put汇报
+        Map<Put, Put> originals = null;
+        List<Put> pending = puts;
+        if (codec != null) {
+            originals = new IdentityHashMap<Put, Put>(puts.size() * 2);
+            pending = new ArrayList<Put>(puts.size());
+            for (Put put : puts) {
+                Put salted = codec.salt(put);
+                originals.put(salted, put);
+                pending.add(salted);
+            }
+        }
+
+        // 不可重试的行 不参与后面几轮
+        List<Put> permanentFailed = new ArrayList<Put>();
+        Throwable lastError = null;
+        int attempt = 0;
+        while (!pending.isEmpty()) {
+            if (breaker != null && !breaker.tryAcquire()) {
+                CircuitBreakerOpenException e = new CircuitBreakerOpenException("circuit breaker of "
+                        + tableName.getNameAsString() + " is open");
+                if (attempt == 0) {
+                    throw e;
+                }
+                lastError = e;
+                break;
+            }
+            attempt++;
+            List<ServerResult> results = writeRound(pending, attempt);
+
+            List<Put> failed = new ArrayList<Put>();
+            boolean clusterIssues = false;
+            for (ServerResult result : results) {
+                report.record(result.server, result.rows, result.batches,
+                        result.failed.size() + result.permanentFailed.size(), result.elapsedMillis, result.maxBatchMillis);
+                failed.addAll(result.failed);
+                permanentFailed.addAll(result.permanentFailed);
+                clusterIssues |= result.clusterIssues;
+                if (result.error != null) {
+                    lastError = result.error;
+                }
+            }
+            if (breaker != null) {
+                if (clusterIssues) {
+                    breaker.onFailure();
+                } else {
+                    breaker.onSuccess();
+                }
+            }
+            pending = failed;
+
+            if (!pending.isEmpty() && attempt >= conf.getMaxAttempts()) {
+                break;
+            }
+            if (!pending.isEmpty()) {
+                backoff(attempt);
+            }
+        }
+
+        if (!pending.isEmpty() || !permanentFailed.isEmpty()) {
+            List<Put> failedRows = new ArrayList<Put>(permanentFailed.size() + pending.size());
+            failedRows.addAll(permanentFailed);
+            failedRows.addAll(pending);
+            report.finish(attempt, originalsOf(failedRows, originals), System.currentTimeMillis() - begin);
+            throw new HbaseWriteException("Error putRowsByServer " + failedRows.size() + " rows failed after "
+                    + attempt + " attempts.  Cause: " + lastError, lastError, report);
+        }
+        report.finish(attempt, Collections.<Put>emptyList(), System.currentTimeMillis() - begin);
+        return report;
+    }
+
+    /**
+     * 写一轮 每个regionserver一个任务 定位region失败或任务异常时按熔断器的规则归还这一轮的调用
+     */
+    private List<ServerResult> writeRound(List<Put> pending, int attempt) throws IOException {
+        try {
+            // 第一次用连接缓存的region位置 重试时说明位置可能变了 重新从meta加载
+            Map<ServerName, List<Put>> groups = group(pending, attempt > 1);
+
+            List<Future<ServerResult>> futures = new ArrayList<Future<ServerResult>>(groups.size());
+            for (Map.Entry<ServerName, List<Put>> group : groups.entrySet()) {
+                futures.add(executor.submit(new ServerTask(group.getKey(), group.getValue())));
+            }
+
+            List<ServerResult> results = new ArrayList<ServerResult>(futures.size());
+            for (Future<ServerResult> future : futures) {
+                results.add(get(future));
+            }
+            return results;
+        } catch (IOException e) {
+            if (breaker != null) {
+                if (RetryPolicy.mayHaveClusterIssues(e)) {
+                    breaker.onFailure();
+                } else {
+                    breaker.onSuccess();
+                }
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            if (breaker != null) {
+                breaker.onIgnored();
+            }
+            throw e;
+        }
+    }
+
+    private static List<Put> originalsOf(List<Put> salted, Map<Put, Put> originals) {
+        if (originals == null) {
+            return salted;
+        }
+        List<Put> result = new ArrayList<Put>(salted.size());
+        for (Put put : salted) {
+            Put original = originals.get(put);
+            result.add(original == null ? put : original);
+        }
+        return result;
+    }
+
+    /**
+     * 按regionserver分组 组内保持原顺序
+     */
+    private Map<ServerName, List<Put>> group(List<Put> puts, boolean reload) throws IOException {
+        Map<ServerName, List<Put>> groups = new LinkedHashMap<ServerName, List<Put>>();
+        RegionLocator locator = hbaseClient.getConnection().getRegionLocator(tableName);
+        try {
+            TreeMap<byte[], HRegionLocation> regions = null;
+            if (reload) {
+                regions = new TreeMap<byte[], HRegionLocation>(Bytes.BYTES_COMPARATOR);
+                for (HRegionLocation location : locator.getAllRegionLocations()) {
+                    regions.put(location.getRegionInfo().getStartKey(), location);
+                }
+            }
+
+            for (Put put : puts) {
+                HRegionLocation location;
+                if (regions == null) {
+                    location = locator.getRegionLocation(put.getRow());
+                } else {
+                    Map.Entry<byte[], HRegionLocation> entry = regions.floorEntry(put.getRow());
+                    location = entry == null ? locator.getRegionLocation(put.getRow(), true) : entry.getValue();
+                }
+
+                List<Put> group = groups.get(location.getServerName());
+                if (group == null) {
+                    group = new ArrayList<Put>();
+                    groups.put(location.getServerName(), group);
+                }
+                group.add(put);
+            }
+        } finally {
+            locator.close();
+        }
+        return groups;
+    }
+
+    private ServerResult get(Future<ServerResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HbaseComponentException("Error putRowsByServer interrupted.  Cause: " + e, e);
+        } catch (ExecutionException e) {
+            throw new HbaseComponentException("Error putRowsByServer.  Cause: " + e.getCause(), e.getCause());
+        }
+    }
+
+    private void backoff(int attempt) {
+        try {
+            Thread.sleep(conf.getRetryBackoffMillis() * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HbaseComponentException("Error putRowsByServer interrupted.  Cause: " + e, e);
+        }
+    }
+
+    /**
+     * 写一个regionserver的所有行 Table不是线程安全的 每个任务单独一个
+     */
+    private class ServerTask implements Callable<ServerResult> {
+
+        private final ServerName server;
+
+        private final List<Put> puts;
+
+        ServerTask(ServerName server, List<Put> puts) {
+            this.server = server;
+            this.puts = puts;
+        }
+
+        public ServerResult call() throws Exception {
+            ServerResult result = new ServerResult(server.getHostAndPort(), puts.size());
+            long begin = System.currentTimeMillis();
+
+            Table table = null;
+            try {
+                table = hbaseClient.getHTable(tableName.getNameAsString());
+                int batchSize = Math.max(1, conf.getMaxBatchSize());
+                for (int from = 0; from < puts.size(); from += batchSize) {
+                    List<Put> batch = new ArrayList<Put>(puts.subList(from, Math.min(from + batchSize, puts.size())));
+                    result.batches++;
+                    long batchBegin = System.currentTimeMillis();
+                    try {
+                        table.put(batch);
+                    } catch (RetriesExhaustedWithDetailsException e) {
+                        for (int i = 0; i < e.getNumExceptions(); i++) {
+                            Row row = e.getRow(i);
+                            if (row instanceof Put) {
+                                result.fail((Put) row, e.getCause(i));
+                            }
+                        }
+                        result.error(e);
+                    } catch (IOException e) {
+                        result.fail(batch, e);
+                    }
+                    result.maxBatchMillis = Math.max(result.maxBatchMillis, System.currentTimeMillis() - batchBegin);
+                }
+            } catch (IOException e) {
+                result.fail(puts, e);
+            } finally {
+                hbaseClient.releaseTable(table);
+            }
+
+            result.elapsedMillis = System.currentTimeMillis() - begin;
+            return result;
+        }
+    }
+
+    private static class ServerResult {
+
+        private final String server;
+
+        private final int rows;
+
+        private int batches;
+
+        /**
+         * 可以重试的行
+         */
+        private final List<Put> failed = new ArrayList<Put>();
+
+        /**
+         * 不可重试的行
+         */
+        private final List<Put> permanentFailed = new ArrayList<Put>();
+
+        private boolean clusterIssues;
+
+        private Throwable error;
+
+        private long elapsedMillis;
+
+        private long maxBatchMillis;
+
+        ServerResult(String server, int rows) {
+            this.server = server;
+            this.rows = rows;
+        }
+
+        void fail(Put put, Throwable cause) {
+            if (RetryPolicy.isRetryable(cause)) {
+                failed.add(put);
+            } else {
+                permanentFailed.add(put);
+            }
+        }
+
+        void fail(List<Put> puts, IOException e) {
+            if (RetryPolicy.isRetryable(e)) {
+                failed.addAll(puts);
+            } else {
+                permanentFailed.addAll(puts);
+            }
+            error(e);
+        }
+
+        void error(IOException e) {
+            error = e;
+            clusterIssues |= RetryPolicy.mayHaveClusterIssues(e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.ebuer.hbase;
+
+import org.apache.hadoop.hbase.client.Put;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按regionserver分组写入的结果 每个regionserver一条统计 多轮重试累加
+ */
+public class RoutedWriteReport {
+
+    private final Map<String, ServerStats> servers = new LinkedHashMap<String, ServerStats>();
+
+    private final long totalRows;
+
+    private List<Put> failedRows = Collections.emptyList();
+
+    private int attempts;
+
+    private long elapsedMillis;
+
+
+    RoutedWriteReport(long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    synchronized void record(String server, int rows, int batches, int failedRows, long elapsedMillis, long maxBatchMillis) {
+        ServerStats stats = servers.get(server);
+        if (stats == null) {
+            stats = new ServerStats(server);
+            servers.put(server, stats);
+        }
+        stats.rows += rows;
+        stats.batches += batches;
+        stats.failedRows += failedRows;
+        stats.elapsedMillis += elapsedMillis;
+        stats.maxBatchMillis = Math.max(stats.maxBatchMillis, maxBatchMillis);
+    }
+
+    synchronized void finish(int attempts, List<Put> failedRows, long elapsedMillis) {
+        this.attempts = attempts;
+        this.failedRows = failedRows;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public synchronized List<ServerStats> getServers() {
+        return new ArrayList<ServerStats>(servers.values());
+    }
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    /**
+     * 所有重试之后仍然失败的行 加盐表返回调用方传入的原始put
+     */
+    public synchronized List<Put> getFailedRows() {
+        return failedRows;
+    }
+
+    public synchronized boolean hasFailure() {
+        return !failedRows.isEmpty();
+    }
+
+    public synchronized int getAttempts() {
+        return attempts;
+    }
+
+    public synchronized long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RoutedWriteReport{" +
+                "totalRows=" + totalRows +
+                ", failedRows=" + failedRows.size() +
+                ", attempts=" + attempts +
+                ", elapsedMillis=" + elapsedMillis +
+                ", servers=" + servers.values() +
+                '}';
+    }
+
+    /**
+     * 一个regionserver的写入统计
+     */
+    public static class ServerStats {
+
+        private final String server;
+
+        private long rows;
+
+        private long batches;
+
+        private long failedRows;
+
+        private long elapsedMillis;
+
+        private long maxBatchMillis;
+
+        ServerStats(String server) {
+            this.server = server;
+        }
+
+        /**
+         * host:port
+         */
+        public String getServer() {
+            return server;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getBatches() {
+            return batches;
+        }
+
+        public long getFailedRows() {
+            return failedRows;
+        }
+
+        /**
+         * 每轮写入耗时的累加
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * 单次table.put(batch)耗时最长的一批
+         */
+        public long getMaxBatchMillis() {
+            return maxBatchMillis;
+        }
+
+        @Override
+        public String toString() {
+            return server + "{rows=" + rows + ", batches=" + batches + ", failedRows=" + failedRows
+                    + ", elapsedMillis=" + elapsedMillis + ", maxBatchMillis=" + maxBatchMillis + "}";
+        }
+    }
+}
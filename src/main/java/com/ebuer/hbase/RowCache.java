@@ -0,0 +1,354 @@
+package com.ebuer.hbase;
+
+import com.ebuer.conf.RowCacheConf;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Consistency;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * getRow的客户端读穿透缓存 按 表+rowKey+查询的列族/列 缓存Result
+ * <p>
+ * 1、容量按Result中cell的字节数估算，超过maxBytes按LRU淘汰
+ * 2、每张表可以单独配置过期时间
+ * 3、同一个HbaseClient发出的put/delete会让对应行的缓存失效；
+ * 其他客户端的写只能等过期，异步写(mutate)在flush之前可能被读回旧值缓存，同样以过期时间兜底
+ * 4、带filter、指定了时间范围、只检查存在性、非强一致读、按列族分页的get不缓存
+ */
+public class RowCache {
+
+    /**
+     * 每个cell除了row/family/qualifier/value之外的估算开销
+     */
+    private static final int CELL_OVERHEAD = 64;
+
+    /**
+     * 每个缓存项的估算开销
+     */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    /**
+     * 失效版本的分段数 必须是2的幂
+     */
+    private static final int VERSION_STRIPES = 1024;
+
+    private final RowCacheConf conf;
+
+    /**
+     * 按访问顺序排列 队头是最久没有访问的
+     */
+    private final LinkedHashMap<CacheKey, Entry> entries = new LinkedHashMap<CacheKey, Entry>(256, 0.75f, true);
+
+    /**
+     * 行 -> 这一行所有的缓存项 失效时用
+     */
+    private final Map<RowId, Set<CacheKey>> rowIndex = new HashMap<RowId, Set<CacheKey>>();
+
+    private long currentBytes = 0;
+
+    /**
+     * 按行分段的失效版本 某行失效时只加它所在的分段
+     * 加载期间所在分段发生过失效的结果不放进缓存 防止把旧值缓存起来；其他行的失效不影响
+     */
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    /*统计*/
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+
+    public RowCache(RowCacheConf conf) {
+        this.conf = conf;
+    }
+
+    /**
+     * 生成缓存key 不可缓存的get返回null
+     *
+     * @param tableName
+     * @param get
+     * @return
+     */
+    CacheKey keyOf(String tableName, Get get) {
+        if (conf.getTtlMillis(tableName) <= 0 || get.getFilter() != null
+                || !get.getTimeRange().isAllTime() || get.isCheckExistenceOnly()
+                || get.getMaxResultsPerColumnFamily() >= 0 || get.getRowOffsetPerColumnFamily() > 0
+                || get.getConsistency() != Consistency.STRONG) {
+            return null;
+        }
+
+        StringBuilder spec = new StringBuilder();
+        for (Map.Entry<byte[], NavigableSet<byte[]>> family : get.getFamilyMap().entrySet()) {
+            spec.append(Bytes.toStringBinary(family.getKey())).append(':');
+            if (family.getValue() != null) {
+                for (byte[] qualifier : family.getValue()) {
+                    spec.append(Bytes.toStringBinary(qualifier)).append(',');
+                }
+            }
+            spec.append(';');
+        }
+        spec.append("v=").append(get.getMaxVersions());
+
+        return new CacheKey(new RowId(tableName, get.getRow()), spec.toString());
+    }
+
+    /**
+     * key所在行当前的失效版本 加载前取一次 放入缓存时带上
+     *
+     * @param key
+     * @return
+     */
+    long epoch(CacheKey key) {
+        return versions.get(stripe(key.rowId));
+    }
+
+    /**
+     * 查缓存 没有或已过期返回null
+     *
+     * @param key
+     * @return
+     */
+    Result get(CacheKey key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && entry.expireAt <= System.currentTimeMillis()) {
+                remove(key);
+                expiredCount.incrementAndGet();
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        // Result内部有游标状态 每个调用方给一个新的壳 cell数组共享
+        return Result.create(entry.cells);
+    }
+
+    /**
+     * 放入缓存 加载期间有过失效则放弃
+     *
+     * @param key
+     * @param result
+     * @param loadEpoch 加载前取的epoch(key)
+     */
+    void put(CacheKey key, Result result, long loadEpoch) {
+        Cell[] cells = result.rawCells();
+        if (cells == null) {
+            cells = new Cell[0];
+        }
+        long bytes = estimateBytes(key, cells);
+        if (bytes > conf.getMaxBytes()) {
+            return;
+        }
+
+        synchronized (this) {
+            if (versions.get(stripe(key.rowId)) != loadEpoch) {
+                return;
+            }
+
+            remove(key);
+            entries.put(key, new Entry(cells, bytes, System.currentTimeMillis() + conf.getTtlMillis(key.rowId.tableName)));
+            Set<CacheKey> keys = rowIndex.get(key.rowId);
+            if (keys == null) {
+                keys = new HashSet<CacheKey>(2);
+                rowIndex.put(key.rowId, keys);
+            }
+            keys.add(key);
+            currentBytes += bytes;
+
+            Iterator<Map.Entry<CacheKey, Entry>> eldest = entries.entrySet().iterator();
+            while (currentBytes > conf.getMaxBytes() && eldest.hasNext()) {
+                Map.Entry<CacheKey, Entry> evict = eldest.next();
+                eldest.remove();
+                unlink(evict.getKey(), evict.getValue().bytes);
+                evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 让tableName中row这一行的所有缓存失效
+     *
+     * @param tableName
+     * @param row
+     */
+    void invalidate(String tableName, byte[] row) {
+        RowId rowId = new RowId(tableName, row);
+        synchronized (this) {
+            versions.incrementAndGet(stripe(rowId));
+            Set<CacheKey> keys = rowIndex.remove(rowId);
+            if (keys == null) {
+                return;
+            }
+            for (CacheKey key : keys) {
+                Entry entry = entries.remove(key);
+                if (entry != null) {
+                    currentBytes -= entry.bytes;
+                    invalidationCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < VERSION_STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        entries.clear();
+        rowIndex.clear();
+        currentBytes = 0;
+    }
+
+    private static int stripe(RowId rowId) {
+        int hash = rowId.hash;
+        return (hash ^ (hash >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    private void remove(CacheKey key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            unlink(key, entry.bytes);
+        }
+    }
+
+    /**
+     * entries中已经移除 这里维护rowIndex和字节数
+     */
+    private void unlink(CacheKey key, long bytes) {
+        currentBytes -= bytes;
+        Set<CacheKey> keys = rowIndex.get(key.rowId);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                rowIndex.remove(key.rowId);
+            }
+        }
+    }
+
+    private long estimateBytes(CacheKey key, Cell[] cells) {
+        long bytes = ENTRY_OVERHEAD + key.rowId.row.length + key.spec.length() * 2;
+        for (Cell cell : cells) {
+            bytes += CELL_OVERHEAD + cell.getRowLength() + cell.getFamilyLength()
+                    + cell.getQualifierLength() + cell.getValueLength();
+        }
+        return bytes;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static class RowId {
+
+        private final String tableName;
+
+        private final byte[] row;
+
+        private final int hash;
+
+        RowId(String tableName, byte[] row) {
+            this.tableName = tableName;
+            this.row = row;
+            this.hash = 31 * tableName.hashCode() + Bytes.hashCode(row);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof RowId)) {
+                return false;
+            }
+            RowId other = (RowId) obj;
+            return tableName.equals(other.tableName) && Bytes.equals(row, other.row);
+        }
+    }
+
+    static class CacheKey {
+
+        private final RowId rowId;
+
+        private final String spec;
+
+        CacheKey(RowId rowId, String spec) {
+            this.rowId = rowId;
+            this.spec = spec;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * rowId.hashCode() + spec.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            return rowId.equals(other.rowId) && spec.equals(other.spec);
+        }
+    }
+
+    private static class Entry {
+
+        private final Cell[] cells;
+
+        private final long bytes;
+
+        private final long expireAt;
+
+        Entry(Cell[] cells, long bytes, long expireAt) {
+            this.cells = cells;
+            this.bytes = bytes;
+            this.expireAt = expireAt;
+        }
+    }
+}
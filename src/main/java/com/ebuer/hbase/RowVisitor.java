@@ -0,0 +1,18 @@
+package com.ebuer.hbase;
+
+import org.apache.hadoop.hbase.client.Result;
+
+import java.io.IOException;
+
+/**
+ * 扫描时逐行回调 不要在外面持有Result的引用 保证扫描过程中内存恒定
+ */
+public interface RowVisitor {
+
+    /**
+     * @param result 当前行
+     * @return false表示提前结束扫描
+     * @throws IOException
+     */
+    boolean visit(Result result) throws IOException;
+}
@@ -0,0 +1,237 @@
+package com.ebuer.hbase;
+
+import com.ebuer.exception.HbaseComponentException;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.Tag;
+import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.io.TimeRange;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+
+/**
+ * rowkey加盐 真实rowkey = 1个字节的盐值 + 原rowkey，盐值 = hash(原rowkey) % buckets
+ * <p>
+ * 1、同一个rowkey的盐值固定，单行put/get/delete只需要改写rowkey
+ * 2、范围扫描拆成每个盐值一个扫描，再按原rowkey归并，见SaltedScanner
+ * 3、hash算法写进了数据，不能修改
+ * 4、过滤器里的rowkey(PrefixFilter/RowFilter等)不会改写，加盐表上不要用
+ */
+public final class SaltedKeyCodec {
+
+    private final int buckets;
+
+    public SaltedKeyCodec(int buckets) {
+        checkBuckets(buckets);
+        this.buckets = buckets;
+    }
+
+    static void checkBuckets(int buckets) {
+        if (buckets < 1 || buckets > 256) {
+            throw new HbaseComponentException("salt buckets must be in [1, 256]: " + buckets);
+        }
+    }
+
+    /**
+     * 原rowkey的盐值
+     */
+    public int bucket(byte[] row) {
+        int hash = 0;
+        for (byte b : row) {
+            hash = 31 * hash + b;
+        }
+        return (hash & Integer.MAX_VALUE) % buckets;
+    }
+
+    public byte[] salt(byte[] row) {
+        byte[] salted = new byte[row.length + 1];
+        salted[0] = (byte) bucket(row);
+        System.arraycopy(row, 0, salted, 1, row.length);
+        return salted;
+    }
+
+    public byte[] unsalt(byte[] salted) {
+        return Arrays.copyOfRange(salted, 1, salted.length);
+    }
+
+    public Put salt(Put put) throws IOException {
+        byte[] row = salt(put.getRow());
+        Put salted = new Put(row, put.getTimeStamp());
+        for (List<Cell> cells : put.getFamilyCellMap().values()) {
+            for (Cell cell : cells) {
+                salted.add(withRow(cell, row, 0, row.length));
+            }
+        }
+        salted.setDurability(put.getDurability());
+        copyAttributes(put, salted);
+        return salted;
+    }
+
+    public Delete salt(Delete delete) throws IOException {
+        byte[] row = salt(delete.getRow());
+        Delete salted = new Delete(row, delete.getTimeStamp());
+        for (List<Cell> cells : delete.getFamilyCellMap().values()) {
+            for (Cell cell : cells) {
+                salted.addDeleteMarker(withRow(cell, row, 0, row.length));
+            }
+        }
+        salted.setDurability(delete.getDurability());
+        copyAttributes(delete, salted);
+        return salted;
+    }
+
+    /**
+     * 只支持Put和Delete
+     */
+    public Mutation salt(Mutation mutation) throws IOException {
+        if (mutation instanceof Put) {
+            return salt((Put) mutation);
+        } else if (mutation instanceof Delete) {
+            return salt((Delete) mutation);
+        }
+        throw new HbaseComponentException("salted table does not support " + mutation.getClass().getSimpleName());
+    }
+
+    public List<Mutation> salt(List<? extends Mutation> mutations) throws IOException {
+        List<Mutation> salted = new ArrayList<Mutation>(mutations.size());
+        for (Mutation mutation : mutations) {
+            salted.add(salt(mutation));
+        }
+        return salted;
+    }
+
+    /**
+     * 单个cell换成加盐后的rowkey HFile导入时用
+     *
+     * @param cell
+     * @return
+     */
+    Cell salt(Cell cell) {
+        byte[] row = salt(CellUtil.cloneRow(cell));
+        return withRow(cell, row, 0, row.length);
+    }
+
+    public Increment salt(Increment increment) throws IOException {
+        byte[] row = salt(increment.getRow());
+        Increment salted = new Increment(row);
+        for (List<Cell> cells : increment.getFamilyCellMap().values()) {
+            for (Cell cell : cells) {
+                salted.add(withRow(cell, row, 0, row.length));
+            }
+        }
+        TimeRange timeRange = increment.getTimeRange();
+        salted.setTimeRange(timeRange.getMin(), timeRange.getMax());
+        salted.setReturnResults(increment.isReturnResults());
+        salted.setDurability(increment.getDurability());
+        copyAttributes(increment, salted);
+        return salted;
+    }
+
+    public Get salt(Get get) throws IOException {
+        Get salted = new Get(salt(get.getRow()));
+        for (Map.Entry<byte[], NavigableSet<byte[]>> family : get.getFamilyMap().entrySet()) {
+            if (family.getValue() == null) {
+                salted.addFamily(family.getKey());
+            } else {
+                for (byte[] qualifier : family.getValue()) {
+                    salted.addColumn(family.getKey(), qualifier);
+                }
+            }
+        }
+        TimeRange timeRange = get.getTimeRange();
+        salted.setTimeRange(timeRange.getMin(), timeRange.getMax());
+        salted.setMaxVersions(get.getMaxVersions());
+        salted.setFilter(get.getFilter());
+        salted.setCacheBlocks(get.getCacheBlocks());
+        salted.setCheckExistenceOnly(get.isCheckExistenceOnly());
+        salted.setMaxResultsPerColumnFamily(get.getMaxResultsPerColumnFamily());
+        salted.setRowOffsetPerColumnFamily(get.getRowOffsetPerColumnFamily());
+        salted.setConsistency(get.getConsistency());
+        copyAttributes(get, salted);
+        return salted;
+    }
+
+    /**
+     * 结果里的rowkey去掉盐值
+     */
+    public Result unsalt(Result result) {
+        if (result == null) {
+            return null;
+        }
+        Cell[] cells = result.rawCells();
+        if (cells == null || cells.length == 0) {
+            return result;
+        }
+
+        Cell[] unsalted = new Cell[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            Cell cell = cells[i];
+            unsalted[i] = withRow(cell, cell.getRowArray(), cell.getRowOffset() + 1, cell.getRowLength() - 1);
+        }
+        return Result.create(unsalted, result.getExists(), result.isStale());
+    }
+
+    /**
+     * 把一个按原rowkey的扫描拆成每个盐值一个扫描 不支持反向扫描
+     */
+    public List<Scan> bucketScans(Scan scan) throws IOException {
+        if (scan.isReversed()) {
+            throw new HbaseComponentException("salted table does not support reversed scan");
+        }
+
+        byte[] start = scan.getStartRow();
+        byte[] stop = scan.getStopRow();
+        List<Scan> scans = new ArrayList<Scan>(buckets);
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            Scan split = new Scan(scan);
+            split.setStartRow(prefix(bucket, start));
+            if (stop != null && stop.length > 0) {
+                split.setStopRow(prefix(bucket, stop));
+            } else if (bucket + 1 < buckets) {
+                split.setStopRow(new byte[]{(byte) (bucket + 1)});
+            } else {
+                split.setStopRow(new byte[0]);
+            }
+            scans.add(split);
+        }
+        return scans;
+    }
+
+    private static byte[] prefix(int bucket, byte[] row) {
+        byte[] key = new byte[row == null ? 1 : row.length + 1];
+        key[0] = (byte) bucket;
+        if (row != null) {
+            System.arraycopy(row, 0, key, 1, row.length);
+        }
+        return key;
+    }
+
+    /**
+     * 换掉cell的rowkey 其他部分(包括tags，例如cell级别的ttl和acl)原样保留
+     */
+    private static Cell withRow(Cell cell, byte[] row, int offset, int length) {
+        List<Tag> tags = cell.getTagsLength() > 0
+                ? Tag.asList(cell.getTagsArray(), cell.getTagsOffset(), cell.getTagsLength()) : null;
+        return new KeyValue(row, offset, length,
+                cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength(),
+                cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength(),
+                cell.getTimestamp(), KeyValue.Type.codeToType(cell.getTypeByte()),
+                cell.getValueArray(), cell.getValueOffset(), cell.getValueLength(), tags);
+    }
+
+    private static void copyAttributes(OperationWithAttributes from, OperationWithAttributes to) {
+        for (Map.Entry<String, byte[]> attribute : from.getAttributesMap().entrySet()) {
+            to.setAttribute(attribute.getKey(), attribute.getValue());
+        }
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+}
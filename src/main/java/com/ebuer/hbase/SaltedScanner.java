@@ -0,0 +1,95 @@
+package com.ebuer.hbase;
+
+import org.apache.hadoop.hbase.client.AbstractClientScanner;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 加盐表的范围扫描 每个盐值一个scanner 按原rowkey做多路归并 返回的rowkey已经去掉盐值
+ * 每个scanner只缓存当前一行 内存和盐值个数成正比
+ */
+class SaltedScanner extends AbstractClientScanner {
+
+    private final SaltedKeyCodec codec;
+
+    private final List<ResultScanner> scanners;
+
+    private final PriorityQueue<Head> heads;
+
+    SaltedScanner(Table table, Scan scan, SaltedKeyCodec codec) throws IOException {
+        this.codec = codec;
+        List<Scan> splits = codec.bucketScans(scan);
+        this.scanners = new ArrayList<ResultScanner>(splits.size());
+        this.heads = new PriorityQueue<Head>(splits.size(), new Comparator<Head>() {
+            public int compare(Head o1, Head o2) {
+                return Bytes.compareTo(o1.current.getRow(), o2.current.getRow());
+            }
+        });
+
+        try {
+            for (Scan split : splits) {
+                ResultScanner scanner = table.getScanner(split);
+                scanners.add(scanner);
+                Head head = new Head(scanner);
+                if (head.advance()) {
+                    heads.add(head);
+                }
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public Result next() throws IOException {
+        Head head = heads.poll();
+        if (head == null) {
+            return null;
+        }
+        Result result = head.current;
+        if (head.advance()) {
+            heads.add(head);
+        }
+        return result;
+    }
+
+    public void close() {
+        for (ResultScanner scanner : scanners) {
+            scanner.close();
+        }
+        heads.clear();
+    }
+
+    public boolean renewLease() {
+        return false;
+    }
+
+    private class Head {
+
+        private final ResultScanner scanner;
+
+        private Result current;
+
+        Head(ResultScanner scanner) {
+            this.scanner = scanner;
+        }
+
+        boolean advance() throws IOException {
+            Result next = scanner.next();
+            current = next == null ? null : codec.unsalt(next);
+            return current != null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.ebuer.hbase;
+
+import com.ebuer.exception.HbaseComponentException;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.Arrays;
+
+/**
+ * 建表时的预分区方式
+ * <p>
+ * 1、salted(n)：按1个字节的盐值分成n个region，配合SaltedKeyCodec使用，自增的rowkey也能均匀打散
+ * 2、hex(n)：rowkey是8位以上小写十六进制(比如md5)时，按 00000000~ffffffff 均分成n个region
+ * 3、uniform(n)：rowkey是均匀分布的二进制时，按前4个字节均分成n个region
+ * 4、explicit(keys)：指定分区点
+ */
+public class SplitStrategy {
+
+    private final byte[][] splitKeys;
+
+    private final int saltBuckets;
+
+    private SplitStrategy(byte[][] splitKeys, int saltBuckets) {
+        this.splitKeys = splitKeys;
+        this.saltBuckets = saltBuckets;
+    }
+
+    /**
+     * 按盐值分区 建表后HbaseClient自动对这张表的读写加盐
+     *
+     * @param buckets 1~256
+     * @return
+     */
+    public static SplitStrategy salted(int buckets) {
+        SaltedKeyCodec.checkBuckets(buckets);
+        byte[][] keys = new byte[buckets - 1][];
+        for (int i = 1; i < buckets; i++) {
+            keys[i - 1] = new byte[]{(byte) i};
+        }
+        return new SplitStrategy(keys, buckets);
+    }
+
+    /**
+     * 十六进制rowkey均分
+     *
+     * @param regions region数
+     * @return
+     */
+    public static SplitStrategy hex(int regions) {
+        checkRegions(regions);
+        byte[][] keys = new byte[regions - 1][];
+        for (int i = 1; i < regions; i++) {
+            keys[i - 1] = Bytes.toBytes(String.format("%08x", ((long) i << 32) / regions));
+        }
+        return new SplitStrategy(keys, 0);
+    }
+
+    /**
+     * 二进制rowkey均分
+     *
+     * @param regions region数
+     * @return
+     */
+    public static SplitStrategy uniform(int regions) {
+        checkRegions(regions);
+        byte[][] keys = new byte[regions - 1][];
+        for (int i = 1; i < regions; i++) {
+            keys[i - 1] = Bytes.toBytes((int) (((long) i << 32) / regions));
+        }
+        return new SplitStrategy(keys, 0);
+    }
+
+    /**
+     * 指定分区点 会排序去重
+     *
+     * @param splitKeys
+     * @return
+     */
+    public static SplitStrategy explicit(byte[]... splitKeys) {
+        byte[][] keys = splitKeys.clone();
+        Arrays.sort(keys, Bytes.BYTES_COMPARATOR);
+        int size = 0;
+        for (byte[] key : keys) {
+            if (key.length == 0) {
+                throw new HbaseComponentException("split key must not be empty");
+            }
+            if (size == 0 || !Bytes.equals(keys[size - 1], key)) {
+                keys[size++] = key;
+            }
+        }
+        return new SplitStrategy(Arrays.copyOf(keys, size), 0);
+    }
+
+    /**
+     * 指定分区点
+     *
+     * @param splitKeys
+     * @return
+     */
+    public static SplitStrategy explicit(String... splitKeys) {
+        byte[][] keys = new byte[splitKeys.length][];
+        for (int i = 0; i < splitKeys.length; i++) {
+            keys[i] = Bytes.toBytes(splitKeys[i]);
+        }
+        return explicit(keys);
+    }
+
+    private static void checkRegions(int regions) {
+        if (regions < 1) {
+            throw new HbaseComponentException("regions must be positive: " + regions);
+        }
+    }
+
+    /**
+     * @return 分区点 长度为region数-1
+     */
+    public byte[][] getSplitKeys() {
+        return splitKeys;
+    }
+
+    /**
+     * @return 盐值个数 不加盐时为0
+     */
+    public int getSaltBuckets() {
+        return saltBuckets;
+    }
+}
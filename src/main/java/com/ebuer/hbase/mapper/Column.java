@@ -0,0 +1,19 @@
+package com.ebuer.hbase.mapper;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 映射到一列的字段 没有标注的字段不读写
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Column {
+
+    /**
+     * 列名 默认取字段名
+     */
+    String value() default "";
+}
@@ -0,0 +1,255 @@
+package com.ebuer.hbase.mapper;
+
+import com.ebuer.exception.HbaseComponentException;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 实体和Put/Get/Delete/Result之间的转换
+ * <p>
+ * 每个类解析一次注解：表名、列族和列名的byte[]、字段和编解码方式都预先算好并缓存
+ * 之后每次转换只做字段读写和值的编解码，不再反射查找也不再 Bytes.toBytes("列名")
+ */
+public class EntityMapper<T> {
+
+    private static final ConcurrentMap<Class<?>, EntityMapper<?>> MAPPERS = new ConcurrentHashMap<Class<?>, EntityMapper<?>>();
+
+    private final Class<T> type;
+
+    private final String tableName;
+
+    private final Constructor<T> constructor;
+
+    private final ColumnMapping rowKey;
+
+    private final ColumnMapping[] columns;
+
+    /**
+     * 获取类对应的mapper 同一个类只解析一次
+     *
+     * @param type
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EntityMapper<T> of(Class<T> type) {
+        EntityMapper<T> mapper = (EntityMapper<T>) MAPPERS.get(type);
+        if (mapper == null) {
+            mapper = new EntityMapper<T>(type);
+            EntityMapper<T> exist = (EntityMapper<T>) MAPPERS.putIfAbsent(type, mapper);
+            if (exist != null) {
+                mapper = exist;
+            }
+        }
+        return mapper;
+    }
+
+    private EntityMapper(Class<T> type) {
+        this.type = type;
+
+        Table table = type.getAnnotation(Table.class);
+        if (table == null) {
+            throw new HbaseComponentException(type.getName() + " is not annotated with @Table");
+        }
+        this.tableName = table.value();
+
+        try {
+            this.constructor = type.getDeclaredConstructor();
+            this.constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new HbaseComponentException(type.getName() + " needs a no-arg constructor", e);
+        }
+
+        Family defaultFamily = type.getAnnotation(Family.class);
+        ColumnMapping key = null;
+        List<ColumnMapping> mappings = new ArrayList<ColumnMapping>();
+        for (Class<?> clazz = type; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+
+                if (field.isAnnotationPresent(RowKey.class)) {
+                    if (key != null) {
+                        throw new HbaseComponentException(type.getName() + " has more than one @RowKey");
+                    }
+                    key = new ColumnMapping(field, null, null);
+                    continue;
+                }
+
+                Column column = field.getAnnotation(Column.class);
+                if (column == null) {
+                    continue;
+                }
+                Family family = field.getAnnotation(Family.class);
+                if (family == null) {
+                    family = defaultFamily;
+                }
+                if (family == null) {
+                    throw new HbaseComponentException(type.getName() + "." + field.getName() + " has no @Family");
+                }
+                String qualifier = column.value().isEmpty() ? field.getName() : column.value();
+                mappings.add(new ColumnMapping(field, Bytes.toBytes(family.value()), Bytes.toBytes(qualifier)));
+            }
+        }
+
+        if (key == null) {
+            throw new HbaseComponentException(type.getName() + " has no @RowKey");
+        }
+        this.rowKey = key;
+        this.columns = mappings.toArray(new ColumnMapping[mappings.size()]);
+    }
+
+    /**
+     * 实体转成Put 值为null的列不写
+     *
+     * @param entity
+     * @return
+     */
+    public Put toPut(T entity) {
+        Put put = new Put(rowKey(entity));
+        for (ColumnMapping column : columns) {
+            Object value = column.get(entity);
+            if (value != null) {
+                put.addColumn(column.family, column.qualifier, column.codec.encode(value));
+            }
+        }
+        return put;
+    }
+
+    /**
+     * 按rowkey查询 只取映射了的列
+     *
+     * @param rowKey 和@RowKey字段同类型
+     * @return
+     */
+    public Get toGet(Object rowKey) {
+        Get get = new Get(toRowKey(rowKey));
+        for (ColumnMapping column : columns) {
+            get.addColumn(column.family, column.qualifier);
+        }
+        return get;
+    }
+
+    /**
+     * 按rowkey删除 只删映射了的列族
+     *
+     * @param rowKey 和@RowKey字段同类型
+     * @return
+     */
+    public Delete toDelete(Object rowKey) {
+        Delete delete = new Delete(toRowKey(rowKey));
+        for (ColumnMapping column : columns) {
+            delete.addColumns(column.family, column.qualifier);
+        }
+        return delete;
+    }
+
+    /**
+     * Result转成实体 每列取最新版本 直接从cell的底层数组解码
+     *
+     * @param result
+     * @return 行不存在时返回null
+     */
+    public T fromResult(Result result) {
+        if (result == null || result.isEmpty()) {
+            return null;
+        }
+
+        try {
+            T entity = constructor.newInstance();
+            byte[] row = result.getRow();
+            rowKey.set(entity, rowKey.codec.decode(row, 0, row.length));
+            for (ColumnMapping column : columns) {
+                Cell cell = result.getColumnLatestCell(column.family, column.qualifier);
+                if (cell != null) {
+                    column.set(entity, column.codec.decode(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength()));
+                }
+            }
+            return entity;
+        } catch (ReflectiveOperationException e) {
+            throw new HbaseComponentException("Error map result to " + type.getName() + ".  Cause: " + e, e);
+        }
+    }
+
+    /**
+     * 实体的rowkey
+     *
+     * @param entity
+     * @return
+     */
+    public byte[] rowKey(T entity) {
+        Object value = rowKey.get(entity);
+        if (value == null) {
+            throw new HbaseComponentException(type.getName() + " rowkey is null");
+        }
+        return rowKey.codec.encode(value);
+    }
+
+    /**
+     * rowkey值转成字节
+     *
+     * @param rowKey 和@RowKey字段同类型
+     * @return
+     */
+    public byte[] toRowKey(Object rowKey) {
+        return this.rowKey.codec.encode(rowKey);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * 一个字段的映射 family/qualifier/codec都是预先算好的
+     */
+    private static class ColumnMapping {
+
+        private final Field field;
+
+        private final byte[] family;
+
+        private final byte[] qualifier;
+
+        private final ValueCodec codec;
+
+        ColumnMapping(Field field, byte[] family, byte[] qualifier) {
+            this.codec = ValueCodec.of(field.getType());
+            if (this.codec == null) {
+                throw new HbaseComponentException("unsupported field type " + field.getType().getName()
+                        + " of " + field.getDeclaringClass().getName() + "." + field.getName());
+            }
+            field.setAccessible(true);
+            this.field = field;
+            this.family = family;
+            this.qualifier = qualifier;
+        }
+
+        Object get(Object entity) {
+            try {
+                return field.get(entity);
+            } catch (IllegalAccessException e) {
+                throw new HbaseComponentException("Error read " + field.getName() + ".  Cause: " + e, e);
+            }
+        }
+
+        void set(Object entity, Object value) throws IllegalAccessException {
+            field.set(entity, value);
+        }
+    }
+}
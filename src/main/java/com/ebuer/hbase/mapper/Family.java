@@ -0,0 +1,19 @@
+package com.ebuer.hbase.mapper;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 列族 标在类上作为所有列的默认列族，标在字段上覆盖默认列族
+ */
+@Target({ElementType.TYPE, ElementType.FIELD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Family {
+
+    /**
+     * 列族名
+     */
+    String value();
+}
@@ -0,0 +1,116 @@
+package com.ebuer.hbase.mapper;
+
+import com.ebuer.hbase.HbaseClient;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于注解实体的读写 底层走HbaseClient 行缓存/get合并等配置同样生效
+ */
+public class HbaseEntityClient {
+
+    private final HbaseClient hbaseClient;
+
+    public HbaseEntityClient(HbaseClient hbaseClient) {
+        this.hbaseClient = hbaseClient;
+    }
+
+    /**
+     * 保存一个实体 值为null的字段不写
+     *
+     * @param entity
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <T> boolean save(T entity) {
+        EntityMapper<T> mapper = EntityMapper.of((Class<T>) entity.getClass());
+        return hbaseClient.putRow(mapper.getTableName(), mapper.toPut(entity));
+    }
+
+    /**
+     * 批量保存
+     *
+     * @param type
+     * @param entities
+     * @return
+     */
+    public <T> boolean saveAll(Class<T> type, List<? extends T> entities) {
+        EntityMapper<T> mapper = EntityMapper.of(type);
+        List<Put> puts = new ArrayList<Put>(entities.size());
+        for (T entity : entities) {
+            puts.add(mapper.toPut(entity));
+        }
+        return hbaseClient.putRows(mapper.getTableName(), puts);
+    }
+
+    /**
+     * 按rowkey读取
+     *
+     * @param type
+     * @param rowKey 和@RowKey字段同类型
+     * @return 不存在时返回null
+     */
+    public <T> T load(Class<T> type, Object rowKey) {
+        EntityMapper<T> mapper = EntityMapper.of(type);
+        return mapper.fromResult(hbaseClient.getRow(mapper.getTableName(), mapper.toGet(rowKey)));
+    }
+
+    /**
+     * 批量读取 结果和rowKeys一一对应 不存在的位置为null
+     *
+     * @param type
+     * @param rowKeys
+     * @return
+     */
+    public <T> List<T> loadAll(Class<T> type, List<?> rowKeys) {
+        EntityMapper<T> mapper = EntityMapper.of(type);
+        List<Get> gets = new ArrayList<Get>(rowKeys.size());
+        for (Object rowKey : rowKeys) {
+            gets.add(mapper.toGet(rowKey));
+        }
+
+        Result[] results = hbaseClient.getRows(mapper.getTableName(), gets);
+        List<T> entities = new ArrayList<T>(results.length);
+        for (Result result : results) {
+            entities.add(mapper.fromResult(result));
+        }
+        return entities;
+    }
+
+    /**
+     * 按rowkey删除实体映射的列
+     *
+     * @param type
+     * @param rowKey 和@RowKey字段同类型
+     * @return
+     */
+    public <T> boolean delete(Class<T> type, Object rowKey) {
+        EntityMapper<T> mapper = EntityMapper.of(type);
+        return hbaseClient.deleteRow(mapper.getTableName(), mapper.toDelete(rowKey));
+    }
+
+    /**
+     * 批量删除
+     *
+     * @param type
+     * @param rowKeys
+     * @return
+     */
+    public <T> boolean deleteAll(Class<T> type, List<?> rowKeys) {
+        EntityMapper<T> mapper = EntityMapper.of(type);
+        List<Delete> deletes = new ArrayList<Delete>(rowKeys.size());
+        for (Object rowKey : rowKeys) {
+            deletes.add(mapper.toDelete(rowKey));
+        }
+        return hbaseClient.deleteRows(mapper.getTableName(), deletes);
+    }
+
+    public HbaseClient getHbaseClient() {
+        return hbaseClient;
+    }
+}
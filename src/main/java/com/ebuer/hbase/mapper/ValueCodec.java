@@ -0,0 +1,137 @@
+package com.ebuer.hbase.mapper;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * 字段值和hbase字节之间的转换 编码和Bytes.toBytes一致
+ * 解码直接读 array/offset/length 不先拷贝出value 定长类型长度不对时抛IllegalArgumentException
+ */
+enum ValueCodec {
+    STRING {
+        byte[] encode(Object value) {
+            return Bytes.toBytes((String) value);
+        }
+
+        Object decode(byte[] array, int offset, int length) {
+            return Bytes.toString(array, offset, length);
+        }
+    },
+    LONG {
+        byte[] encode(Object value) {
+            return Bytes.toBytes((Long) value);
+        }
+
+        Object decode(byte[] array, int offset, int length) {
+            return Bytes.toLong(array, offset, length);
+        }
+    },
+    INT {
+        byte[] encode(Object value) {
+            return Bytes.toBytes((Integer) value);
+        }
+
+        Object decode(byte[] array, int offset, int length) {
+            return Bytes.toInt(array, offset, length);
+        }
+    },
+    SHORT {
+        byte[] encode(Object value) {
+            return Bytes.toBytes((Short) value);
+        }
+
+        Object decode(byte[] array, int offset, int length) {
+            return Bytes.toShort(array, offset, length);
+        }
+    },
+    DOUBLE {
+        byte[] encode(Object value) {
+            return Bytes.toBytes((Double) value);
+        }
+
+        Object decode(byte[] array, int offset, int length) {
+            return Double.longBitsToDouble(Bytes.toLong(array, offset, length));
+        }
+    },
+    FLOAT {
+        byte[] encode(Object value) {
+            return Bytes.toBytes((Float) value);
+        }
+
+        Object decode(byte[] array, int offset, int length) {
+            return Float.intBitsToFloat(Bytes.toInt(array, offset, length));
+        }
+    },
+    BOOLEAN {
+        byte[] encode(Object value) {
+            return Bytes.toBytes((Boolean) value);
+        }
+
+        Object decode(byte[] array, int offset, int length) {
+            // 和Bytes.toBoolean一样只接受1个字节
+            if (length != Bytes.SIZEOF_BOOLEAN) {
+                throw new IllegalArgumentException("Wrong length for boolean: " + length);
+            }
+            return array[offset] != (byte) 0;
+        }
+    },
+    DECIMAL {
+        byte[] encode(Object value) {
+            return Bytes.toBytes((BigDecimal) value);
+        }
+
+        Object decode(byte[] array, int offset, int length) {
+            return Bytes.toBigDecimal(array, offset, length);
+        }
+    },
+    DATE {
+        byte[] encode(Object value) {
+            return Bytes.toBytes(((Date) value).getTime());
+        }
+
+        Object decode(byte[] array, int offset, int length) {
+            return new Date(Bytes.toLong(array, offset, length));
+        }
+    },
+    BYTES {
+        byte[] encode(Object value) {
+            return (byte[]) value;
+        }
+
+        Object decode(byte[] array, int offset, int length) {
+            return Arrays.copyOfRange(array, offset, offset + length);
+        }
+    };
+
+    abstract byte[] encode(Object value);
+
+    abstract Object decode(byte[] array, int offset, int length);
+
+    static ValueCodec of(Class<?> type) {
+        if (type == String.class) {
+            return STRING;
+        } else if (type == long.class || type == Long.class) {
+            return LONG;
+        } else if (type == int.class || type == Integer.class) {
+            return INT;
+        } else if (type == short.class || type == Short.class) {
+            return SHORT;
+        } else if (type == double.class || type == Double.class) {
+            return DOUBLE;
+        } else if (type == float.class || type == Float.class) {
+            return FLOAT;
+        } else if (type == boolean.class || type == Boolean.class) {
+            return BOOLEAN;
+        } else if (type == BigDecimal.class) {
+            return DECIMAL;
+        } else if (type == Date.class) {
+            return DATE;
+        } else if (type == byte[].class) {
+            return BYTES;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,138 @@
+package com.ebuer.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 默认的指标实现 每个 表+操作 一个OperationStats，第一次出现时注册成JMX MBean：
+ * {jmxDomain}:type=Operation,scope={表名},name={操作名}
+ * 状态类指标注册成 {jmxDomain}:type={type},scope={表名}
+ * <p>
+ * 查找是两层ConcurrentHashMap的get，记录不分配内存不加锁
+ */
+public class DefaultMetricsRegistry implements MetricsRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultMetricsRegistry.class);
+
+    private static volatile DefaultMetricsRegistry defaultRegistry;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, OperationStats>> stats =
+            new ConcurrentHashMap<String, ConcurrentMap<String, OperationStats>>();
+
+    /**
+     * 为空表示不导出到JMX
+     */
+    private final String jmxDomain;
+
+
+    public DefaultMetricsRegistry() {
+        this(null);
+    }
+
+    public DefaultMetricsRegistry(String jmxDomain) {
+        this.jmxDomain = jmxDomain;
+    }
+
+    /**
+     * 进程内共享的默认实例 导出到JMX的com.ebuer.hutils域 HbaseClient/PhoenixClient默认使用
+     *
+     * @return
+     */
+    public static DefaultMetricsRegistry getDefault() {
+        DefaultMetricsRegistry registry = defaultRegistry;
+        if (registry == null) {
+            synchronized (DefaultMetricsRegistry.class) {
+                registry = defaultRegistry;
+                if (registry == null) {
+                    registry = new DefaultMetricsRegistry("com.ebuer.hutils");
+                    defaultRegistry = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    public void record(String scope, String operation, long latencyNanos, int batchSize, boolean success) {
+        getStats(scope, operation).record(latencyNanos, batchSize, success);
+    }
+
+    /**
+     * 获取 表+操作 的统计 不存在时创建
+     *
+     * @param scope
+     * @param operation
+     * @return
+     */
+    public OperationStats getStats(String scope, String operation) {
+        ConcurrentMap<String, OperationStats> operations = stats.get(scope);
+        if (operations == null) {
+            operations = new ConcurrentHashMap<String, OperationStats>();
+            ConcurrentMap<String, OperationStats> exist = stats.putIfAbsent(scope, operations);
+            if (exist != null) {
+                operations = exist;
+            }
+        }
+
+        OperationStats operationStats = operations.get(operation);
+        if (operationStats == null) {
+            operationStats = new OperationStats(scope, operation);
+            OperationStats exist = operations.putIfAbsent(operation, operationStats);
+            if (exist != null) {
+                return exist;
+            }
+            register(operationStats);
+        }
+        return operationStats;
+    }
+
+    /**
+     * 所有统计的快照列表
+     */
+    public List<OperationStats> getAll() {
+        List<OperationStats> all = new ArrayList<OperationStats>();
+        for (ConcurrentMap<String, OperationStats> operations : stats.values()) {
+            all.addAll(operations.values());
+        }
+        return all;
+    }
+
+    public void reset() {
+        for (OperationStats operationStats : getAll()) {
+            operationStats.reset();
+        }
+    }
+
+    @Override
+    public void registerState(String scope, String type, Object bean) {
+        registerMBean("type=" + type + ",scope=" + ObjectName.quote(scope), bean);
+    }
+
+    private void register(OperationStats operationStats) {
+        registerMBean("type=Operation,scope=" + ObjectName.quote(operationStats.getScope())
+                + ",name=" + ObjectName.quote(operationStats.getOperation()), operationStats);
+    }
+
+    private void registerMBean(String properties, Object bean) {
+        if (jmxDomain == null) {
+            return;
+        }
+        try {
+            ObjectName name = new ObjectName(jmxDomain + ":" + properties);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(bean, name);
+            }
+        } catch (Exception e) {
+            // 导出失败不影响统计本身
+            logger.warn("register metrics mbean error :{}", e);
+        }
+    }
+}
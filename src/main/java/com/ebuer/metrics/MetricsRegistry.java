@@ -0,0 +1,29 @@
+package com.ebuer.metrics;
+
+/**
+ * 操作指标的记录入口 HbaseClient/PhoenixClient每次操作结束时回调
+ * 默认实现见DefaultMetricsRegistry(内存直方图 + JMX)，需要接入其他监控系统时自己实现
+ */
+public interface MetricsRegistry {
+
+    /**
+     * 记录一次操作 在调用线程的热路径上执行 实现必须足够轻、不能阻塞、不能抛异常
+     *
+     * @param scope        hbase为表名，phoenix为"phoenix"，不针对表的操作为"*"
+     * @param operation    操作名 比如getRow/putRows/execQuery/acquire
+     * @param latencyNanos 耗时 纳秒
+     * @param batchSize    批量操作的行数 单行操作为1 不适用时为0
+     * @param success      是否成功
+     */
+    void record(String scope, String operation, long latencyNanos, int batchSize, boolean success);
+
+    /**
+     * 导出状态类的指标 比如熔断器的当前状态 每个scope+type只调用一次 默认不处理
+     *
+     * @param scope 表名
+     * @param type  指标类型 比如CircuitBreaker
+     * @param bean  符合MXBean规范的对象 由调用方持有并更新
+     */
+    default void registerState(String scope, String type, Object bean) {
+    }
+}
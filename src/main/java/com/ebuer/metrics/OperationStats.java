@@ -0,0 +1,105 @@
+package com.ebuer.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个 表+操作 的统计：次数、失败次数、延迟分布(纳秒)、批量大小分布
+ */
+public class OperationStats implements OperationStatsMXBean {
+
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private final String scope;
+
+    private final String operation;
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LogHistogram latency = new LogHistogram();
+
+    private final LogHistogram batchSizes = new LogHistogram();
+
+
+    public OperationStats(String scope, String operation) {
+        this.scope = scope;
+        this.operation = operation;
+    }
+
+    public void record(long latencyNanos, int batchSize, boolean success) {
+        latency.record(latencyNanos);
+        if (batchSize > 0) {
+            batchSizes.record(batchSize);
+        }
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    public double getMeanMillis() {
+        return latency.getMean() / NANOS_PER_MILLI;
+    }
+
+    public double getP50Millis() {
+        return latency.getPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    public double getP99Millis() {
+        return latency.getPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    public double getP999Millis() {
+        return latency.getPercentile(99.9) / NANOS_PER_MILLI;
+    }
+
+    public double getMaxMillis() {
+        return latency.getMax() / NANOS_PER_MILLI;
+    }
+
+    public double getMeanBatchSize() {
+        return batchSizes.getMean();
+    }
+
+    public long getMaxBatchSize() {
+        return batchSizes.getMax();
+    }
+
+    /**
+     * 延迟分布 单位纳秒
+     */
+    public LogHistogram getLatency() {
+        return latency;
+    }
+
+    public LogHistogram getBatchSizes() {
+        return batchSizes;
+    }
+
+    public void reset() {
+        errors.reset();
+        latency.reset();
+        batchSizes.reset();
+    }
+
+    @Override
+    public String toString() {
+        return scope + "." + operation + "{count=" + getCount() + ", errors=" + getErrorCount()
+                + ", mean=" + getMeanMillis() + "ms, p50=" + getP50Millis() + "ms, p99=" + getP99Millis()
+                + "ms, max=" + getMaxMillis() + "ms, meanBatch=" + getMeanBatchSize() + "}";
+    }
+}
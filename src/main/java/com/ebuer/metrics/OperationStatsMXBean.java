@@ -0,0 +1,31 @@
+package com.ebuer.metrics;
+
+/**
+ * 一个 表+操作 的JMX视图 时间单位毫秒
+ */
+public interface OperationStatsMXBean {
+
+    String getScope();
+
+    String getOperation();
+
+    long getCount();
+
+    long getErrorCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+
+    double getMeanBatchSize();
+
+    long getMaxBatchSize();
+
+    void reset();
+}
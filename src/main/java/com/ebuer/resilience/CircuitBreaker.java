@@ -0,0 +1,140 @@
+package com.ebuer.resilience;
+
+import com.ebuer.conf.CircuitBreakerConf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 熔断器 CLOSED -> 连续失败failureThreshold次 -> OPEN -> 等openMillis -> HALF_OPEN
+ * HALF_OPEN时放行halfOpenMaxCalls个试探请求：成功则CLOSED，失败则重新OPEN
+ * <p>
+ * 只有集群故障(RetryPolicy.mayHaveClusterIssues)才计数，表不存在之类的错误说明集群是通的，按成功算
+ * 每次tryAcquire成功之后必须调用onSuccess、onFailure、onIgnored之一
+ */
+public class CircuitBreaker implements CircuitBreakerMXBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+
+    private final CircuitBreakerConf conf;
+
+    private final AtomicReference<State> state = new AtomicReference<State>(State.CLOSED);
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private final AtomicInteger halfOpenCalls = new AtomicInteger();
+
+    private final AtomicLong openedCount = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private volatile long openedAt;
+
+
+    public CircuitBreaker(String name, CircuitBreakerConf conf) {
+        this.name = name;
+        this.conf = conf;
+    }
+
+    /**
+     * 调用之前检查
+     *
+     * @return false表示熔断中 调用方应直接失败
+     */
+    public boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < conf.getOpenMillis()) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+            if (state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+                halfOpenCalls.set(0);
+                logger.info("circuit breaker {} half open", name);
+            }
+        }
+        if (state.get() == State.HALF_OPEN && halfOpenCalls.incrementAndGet() > conf.getHalfOpenMaxCalls()) {
+            halfOpenCalls.decrementAndGet();
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        if (state.get() != State.CLOSED && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+            logger.info("circuit breaker {} closed", name);
+        }
+    }
+
+    /**
+     * 调用没有真正完成一次rpc(客户端的参数错误、回调里的异常等) 不改变状态
+     * HALF_OPEN时归还试探名额 让下一个请求继续试探
+     */
+    public void onIgnored() {
+        if (state.get() != State.HALF_OPEN) {
+            return;
+        }
+        int current;
+        do {
+            current = halfOpenCalls.get();
+            if (current <= 0) {
+                return;
+            }
+        } while (!halfOpenCalls.compareAndSet(current, current - 1));
+    }
+
+    public void onFailure() {
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            open(State.HALF_OPEN);
+        } else if (consecutiveFailures.incrementAndGet() >= conf.getFailureThreshold() && current == State.CLOSED) {
+            open(State.CLOSED);
+        }
+    }
+
+    private void open(State from) {
+        if (state.compareAndSet(from, State.OPEN)) {
+            openedAt = System.currentTimeMillis();
+            openedCount.incrementAndGet();
+            logger.warn("circuit breaker {} opened after {} consecutive failures", name, consecutiveFailures.get());
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getStateName() {
+        return state.get().name();
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    public long getOpenedCount() {
+        return openedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+}
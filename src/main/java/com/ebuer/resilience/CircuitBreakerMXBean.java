@@ -0,0 +1,26 @@
+package com.ebuer.resilience;
+
+/**
+ * 熔断器的JMX视图
+ */
+public interface CircuitBreakerMXBean {
+
+    String getName();
+
+    /**
+     * @return CLOSED / OPEN / HALF_OPEN
+     */
+    String getStateName();
+
+    int getConsecutiveFailures();
+
+    /**
+     * @return 打开过的次数
+     */
+    long getOpenedCount();
+
+    /**
+     * @return 因为打开而直接拒绝的调用数
+     */
+    long getRejectedCount();
+}
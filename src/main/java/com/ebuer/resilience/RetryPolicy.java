@@ -0,0 +1,172 @@
+package com.ebuer.resilience;
+
+import com.ebuer.conf.RetryConf;
+import org.apache.hadoop.hbase.DoNotRetryIOException;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+
+import java.io.IOException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 指数退避 + 随机抖动 + 重试预算
+ * <p>
+ * 只判断能不能重试、该等多久，是否幂等由调用方决定：get/put和幂等的delete重试，
+ * 只删最新版本(addColumn不带时间戳)的delete、increment/append不重试
+ * 一个客户端共用一个实例 预算在所有表、所有线程之间共享
+ */
+public class RetryPolicy {
+
+    /**
+     * 预算按千分之一次重试计 避免浮点的并发累加
+     */
+    private static final long TOKEN = 1000;
+
+    private final RetryConf conf;
+
+    private final long depositPerCall;
+
+    private final long maxTokens;
+
+    private final AtomicLong tokens;
+
+
+    public RetryPolicy(RetryConf conf) {
+        this.conf = conf;
+        this.depositPerCall = (long) (conf.getBudgetRatio() * TOKEN);
+        this.maxTokens = conf.getBudgetMaxRetries() * TOKEN;
+        this.tokens = new AtomicLong(maxTokens);
+    }
+
+    /**
+     * 每次调用(不含重试)开始时调用 积攒重试预算
+     */
+    public void onCall() {
+        if (depositPerCall <= 0) {
+            return;
+        }
+        long current;
+        do {
+            current = tokens.get();
+            if (current >= maxTokens) {
+                return;
+            }
+        } while (!tokens.compareAndSet(current, Math.min(maxTokens, current + depositPerCall)));
+    }
+
+    /**
+     * 第failedAttempts次尝试失败之后能否再试 能试时扣掉一次预算
+     *
+     * @param failedAttempts 已经失败的次数 从1开始
+     * @return
+     */
+    public boolean allowRetry(int failedAttempts) {
+        if (failedAttempts >= conf.getMaxAttempts()) {
+            return false;
+        }
+        long current;
+        do {
+            current = tokens.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    /**
+     * 第failedAttempts次失败之后的等待时间 initial * 2^(n-1) 封顶max 再乘(1 - jitter * random)
+     *
+     * @param failedAttempts 从1开始
+     * @return
+     */
+    public long backoffMillis(int failedAttempts) {
+        long backoff = conf.getInitialBackoffMillis() << Math.min(failedAttempts - 1, 30);
+        if (backoff <= 0 || backoff > conf.getMaxBackoffMillis()) {
+            backoff = conf.getMaxBackoffMillis();
+        }
+        double jitter = conf.getJitter() * ThreadLocalRandom.current().nextDouble();
+        return (long) (backoff * (1 - jitter));
+    }
+
+    /**
+     * 退避等待
+     *
+     * @param failedAttempts
+     * @return 等待被中断时返回false 并保留中断标记 调用方应停止重试
+     */
+    public boolean backoff(int failedAttempts) {
+        long millis = backoffMillis(failedAttempts);
+        if (millis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 是否是可能自行恢复的失败：region迁移、regionserver宕机、超时、连接断开等
+     * DoNotRetryIOException(表不存在、列族不存在、参数错误等)和其他非io的异常不重试
+     * 批量操作的RetriesExhaustedWithDetailsException看每一行的失败原因 有一行不可重试就整体不重试
+     *
+     * @param e
+     * @return
+     */
+    public static boolean isRetryable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriesExhaustedWithDetailsException) {
+                for (Throwable rowCause : ((RetriesExhaustedWithDetailsException) cause).getCauses()) {
+                    if (!isRetryable(rowCause)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            if (cause instanceof DoNotRetryIOException) {
+                return false;
+            }
+            if (cause instanceof IOException || cause instanceof TimeoutException
+                    || cause instanceof SQLTransientException || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 熔断器是否应该把这次失败算作集群故障：可重试的失败，或者批量失败里有不是DoNotRetryIOException的行
+     *
+     * @param e
+     * @return
+     */
+    public static boolean mayHaveClusterIssues(Throwable e) {
+        if (isRetryable(e)) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriesExhaustedWithDetailsException) {
+                return ((RetriesExhaustedWithDetailsException) cause).mayHaveClusterIssues();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return 当前剩余的重试次数预算
+     */
+    public long getRemainingBudget() {
+        return tokens.get() / TOKEN;
+    }
+
+    public RetryConf getConf() {
+        return conf;
+    }
+}
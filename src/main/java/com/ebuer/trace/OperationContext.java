@@ -0,0 +1,151 @@
+package com.ebuer.trace;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 一次操作的上下文 只在执行操作的线程内使用 不是线程安全的
+ * <p>
+ * 耗时分三段：
+ * connect     hbase是getTable/getAdmin 不发rpc 通常接近0；phoenix是从连接池借连接 池里没有时新建物理连接
+ * execute     hbase是TableAction的全部执行：region定位、rpc、重试的退避等待，scan/scanCells还包括visitor回调；
+ *             phoenix是编译sql和executeQuery/executeUpdate
+ * materialize hbase只有释放Table 通常接近0 (去盐、实体转换在操作结束之后 不计入)；
+ *             phoenix是遍历ResultSet 包括ResultSetExtractor/RowMapper的转换和phoenix在rs.next()里按fetchSize懒加载的扫描rpc
+ * 没有调用markExecuted时execute一直算到结束 materialize为0
+ */
+public class OperationContext {
+
+    private final String scope;
+
+    private final String operation;
+
+    private final Object target;
+
+    private final int batchSize;
+
+    private final long startNanos = System.nanoTime();
+
+    private long connectedNanos;
+
+    private long executedNanos;
+
+    private long endNanos;
+
+    private boolean success;
+
+    private Throwable error;
+
+    private Map<String, Object> attributes;
+
+
+    OperationContext(String scope, String operation, Object target, int batchSize) {
+        this.scope = scope;
+        this.operation = operation;
+        this.target = target;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 连接阶段结束 重试时只记第一次 之后的重试耗时算在execute里
+     */
+    public void markConnected() {
+        if (connectedNanos == 0) {
+            connectedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * 执行阶段结束 之后的时间算作materialize
+     */
+    public void markExecuted() {
+        executedNanos = System.nanoTime();
+    }
+
+    /**
+     * 记下失败原因 操作仍以end时的success为准
+     *
+     * @param error
+     */
+    public void fail(Throwable error) {
+        this.error = error;
+    }
+
+    void end(boolean success) {
+        this.endNanos = System.nanoTime();
+        this.success = success;
+    }
+
+    public long getElapsedNanos() {
+        return (endNanos == 0 ? System.nanoTime() : endNanos) - startNanos;
+    }
+
+    public long getConnectNanos() {
+        return connectedNanos == 0 ? 0 : connectedNanos - startNanos;
+    }
+
+    public long getExecuteNanos() {
+        long from = connectedNanos == 0 ? startNanos : connectedNanos;
+        long to = executedNanos != 0 ? executedNanos : (endNanos == 0 ? System.nanoTime() : endNanos);
+        return to - from;
+    }
+
+    public long getMaterializeNanos() {
+        if (executedNanos == 0) {
+            return 0;
+        }
+        return (endNanos == 0 ? System.nanoTime() : endNanos) - executedNanos;
+    }
+
+    /**
+     * rowkey或sql的可读形式 byte[]的rowkey按Bytes.toStringBinary转换
+     *
+     * @return 没有单一目标的操作(批量、admin)返回null
+     */
+    public String getTarget() {
+        if (target instanceof byte[]) {
+            return Bytes.toStringBinary((byte[]) target);
+        }
+        return target == null ? null : target.toString();
+    }
+
+    public Object getAttribute(String name) {
+        return attributes == null ? null : attributes.get(name);
+    }
+
+    public void setAttribute(String name, Object value) {
+        if (attributes == null) {
+            attributes = new HashMap<String, Object>();
+        }
+        attributes.put(name, value);
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * @return 失败但没有记录原因时为null
+     */
+    public Throwable getError() {
+        return error;
+    }
+}
@@ -0,0 +1,22 @@
+package com.ebuer.trace;
+
+/**
+ * 操作前后的回调 用来接入自己的tracing(开span/关span)
+ * 回调在调用线程上同步执行 不要做耗时的事情；抛出的异常会被吞掉打日志 不影响操作本身
+ */
+public interface OperationListener {
+
+    /**
+     * 操作开始 可以用context.setAttribute挂上自己的span
+     *
+     * @param context
+     */
+    void onStart(OperationContext context);
+
+    /**
+     * 操作结束 不论成功失败都会回调 此时各阶段耗时已经确定
+     *
+     * @param context
+     */
+    void onEnd(OperationContext context);
+}
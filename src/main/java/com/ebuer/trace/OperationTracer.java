@@ -0,0 +1,135 @@
+package com.ebuer.trace;
+
+import com.ebuer.conf.TraceConf;
+import com.ebuer.metrics.DefaultMetricsRegistry;
+import com.ebuer.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 包在每次操作外面：开始时回调listener，结束时记指标、判断慢操作、回调listener
+ * HbaseClient/PhoenixClient各持有一个
+ */
+public class OperationTracer {
+
+    private static final Logger logger = LoggerFactory.getLogger(OperationTracer.class);
+
+    private final List<OperationListener> listeners = new CopyOnWriteArrayList<OperationListener>();
+
+    private volatile MetricsRegistry metricsRegistry = DefaultMetricsRegistry.getDefault();
+
+    private volatile TraceConf traceConf;
+
+    private volatile SlowOperationLogger slowLogger;
+
+
+    public OperationTracer() {
+        setTraceConf(new TraceConf());
+    }
+
+    /**
+     * 开始一次操作
+     *
+     * @param scope     hbase为表名，phoenix为"phoenix.{表名}"，不针对表的操作为"*"
+     * @param operation 操作名
+     * @param target    rowkey(byte[]/String)或sql 没有单一目标时传null
+     * @param batchSize 批量操作的行数 单行为1 不适用时为0
+     * @return
+     */
+    public OperationContext begin(String scope, String operation, Object target, int batchSize) {
+        OperationContext context = new OperationContext(scope, operation, target, batchSize);
+        for (OperationListener listener : listeners) {
+            try {
+                listener.onStart(context);
+            } catch (RuntimeException e) {
+                logger.warn("OperationListener onStart error :{}", e);
+            }
+        }
+        return context;
+    }
+
+    /**
+     * 结束一次操作 放在finally里调用
+     *
+     * @param context
+     * @param success
+     */
+    public void end(OperationContext context, boolean success) {
+        context.end(success);
+
+        MetricsRegistry registry = metricsRegistry;
+        if (registry != null) {
+            registry.record(context.getScope(), context.getOperation(), context.getElapsedNanos(),
+                    context.getBatchSize(), success);
+        }
+        SlowOperationLogger slow = slowLogger;
+        if (slow != null) {
+            slow.onEnd(context);
+        }
+        for (OperationListener listener : listeners) {
+            try {
+                listener.onEnd(context);
+            } catch (RuntimeException e) {
+                logger.warn("OperationListener onEnd error :{}", e);
+            }
+        }
+    }
+
+    /**
+     * 只记指标 用在不需要回调listener的次要路径上(缓存命中、合并get等)
+     *
+     * @param scope
+     * @param operation
+     * @param beginNanos
+     * @param batchSize
+     * @param success
+     */
+    public void record(String scope, String operation, long beginNanos, int batchSize, boolean success) {
+        MetricsRegistry registry = metricsRegistry;
+        if (registry != null) {
+            registry.record(scope, operation, System.nanoTime() - beginNanos, batchSize, success);
+        }
+    }
+
+    public void addListener(OperationListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(OperationListener listener) {
+        listeners.remove(listener);
+    }
+
+    public List<OperationListener> getListeners() {
+        return listeners;
+    }
+
+    public void setListeners(List<OperationListener> listeners) {
+        this.listeners.clear();
+        this.listeners.addAll(listeners);
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    public TraceConf getTraceConf() {
+        return traceConf;
+    }
+
+    /**
+     * 慢日志每次读traceConf的当前值 之后修改getTraceConf()的属性同样生效
+     *
+     * @param traceConf
+     */
+    public void setTraceConf(TraceConf traceConf) {
+        this.traceConf = traceConf;
+        this.slowLogger = new SlowOperationLogger(traceConf);
+    }
+}
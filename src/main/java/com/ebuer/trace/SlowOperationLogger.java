@@ -0,0 +1,56 @@
+package com.ebuer.trace;
+
+import com.ebuer.conf.TraceConf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 耗时超过阈值的操作打一条warn日志 包含表、rowkey/sql、批量大小和分阶段耗时
+ * 日志名是com.ebuer.trace.SlowOperationLogger 可以单独配置输出到慢日志文件
+ * 每次都读TraceConf的当前值 运行期间修改阈值立即生效
+ */
+public class SlowOperationLogger implements OperationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowOperationLogger.class);
+
+    private final TraceConf conf;
+
+
+    public SlowOperationLogger(TraceConf conf) {
+        this.conf = conf;
+    }
+
+    public SlowOperationLogger(long thresholdMillis, int maxTargetLength) {
+        this.conf = new TraceConf(thresholdMillis);
+        this.conf.setMaxTargetLength(maxTargetLength);
+    }
+
+    public void onStart(OperationContext context) {
+    }
+
+    public void onEnd(OperationContext context) {
+        long thresholdMillis = conf.getSlowOperationMillis();
+        if (thresholdMillis <= 0 || context.getElapsedNanos() < TimeUnit.MILLISECONDS.toNanos(thresholdMillis)) {
+            return;
+        }
+        logger.warn("slow operation {}/{} cost:{}ms connect:{}ms execute:{}ms materialize:{}ms batch:{} success:{} target:{}",
+                new Object[]{context.getScope(), context.getOperation(), millis(context.getElapsedNanos()),
+                        millis(context.getConnectNanos()), millis(context.getExecuteNanos()),
+                        millis(context.getMaterializeNanos()), context.getBatchSize(), context.isSuccess(),
+                        abbreviate(context.getTarget())});
+    }
+
+    private String abbreviate(String target) {
+        int maxTargetLength = conf.getMaxTargetLength();
+        if (target == null || target.length() <= maxTargetLength) {
+            return target;
+        }
+        return target.substring(0, maxTargetLength) + "...(" + target.length() + " chars)";
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1000 / 1000.0;
+    }
+}
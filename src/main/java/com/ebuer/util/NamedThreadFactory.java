@@ -0,0 +1,31 @@
+package com.ebuer.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 带名字的线程工厂 方便jstack排查问题
+ */
+public class NamedThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger index = new AtomicInteger(1);
+
+    private final String prefix;
+
+    private final boolean daemon;
+
+    public NamedThreadFactory(String prefix) {
+        this(prefix, true);
+    }
+
+    public NamedThreadFactory(String prefix, boolean daemon) {
+        this.prefix = prefix;
+        this.daemon = daemon;
+    }
+
+    public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, prefix + "-" + index.getAndIncrement());
+        thread.setDaemon(daemon);
+        return thread;
+    }
+}
@@ -0,0 +1,94 @@
+package com.ebuer.conf;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.util.Pair;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 测试Hbase配置的缓存
+ */
+public class HbaseConfTest {
+
+    private List<Pair<String, String>> keyValues = null;
+
+    private HbaseConf hbaseConf = null;
+
+
+    @Before
+    public void init() {
+        keyValues = new ArrayList<Pair<String, String>>();
+        keyValues.add(new Pair<String, String>("hbase.zookeeper.quorum", "192.168.48.133:2181"));
+        keyValues.add(new Pair<String, String>("hbase.zookeeper.property.clientPort", "2181"));
+        hbaseConf = new HbaseConf(keyValues);
+    }
+
+    @Test
+    public void testCached() {
+        Configuration first = hbaseConf.getHbaseConf();
+        Configuration second = hbaseConf.getHbaseConf();
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals("192.168.48.133:2181", first.get("hbase.zookeeper.quorum"));
+    }
+
+    @Test
+    public void testSetInvalidate() {
+        Configuration first = hbaseConf.getHbaseConf();
+
+        hbaseConf.set("hbase.zookeeper.quorum", "192.168.48.134:2181");
+        Configuration second = hbaseConf.getHbaseConf();
+
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals("192.168.48.134:2181", second.get("hbase.zookeeper.quorum"));
+        Assert.assertEquals("192.168.48.133:2181", first.get("hbase.zookeeper.quorum"));
+        Assert.assertEquals(2, hbaseConf.getKeyValues().size());
+    }
+
+    /**
+     * 每次获取配置的分配量和cpu耗时：每次HBaseConfiguration.create()(改造前) vs 缓存(改造后)
+     */
+    @Test
+    public void benchGetHbaseConf() {
+        int times = 500;
+        ThreadMXBean mxBean = ManagementFactory.getThreadMXBean();
+
+        long allocBegin = allocatedBytes(mxBean);
+        long cpuBegin = mxBean.getCurrentThreadCpuTime();
+        for (int i = 0; i < times; i++) {
+            Configuration conf = HBaseConfiguration.create();
+            for (Pair<String, String> pair : keyValues) {
+                conf.set(pair.getFirst(), pair.getSecond());
+            }
+            conf.get("hbase.zookeeper.quorum");
+        }
+        long beforeAlloc = allocatedBytes(mxBean) - allocBegin;
+        long beforeCpu = mxBean.getCurrentThreadCpuTime() - cpuBegin;
+
+        hbaseConf.getHbaseConf();
+        allocBegin = allocatedBytes(mxBean);
+        cpuBegin = mxBean.getCurrentThreadCpuTime();
+        for (int i = 0; i < times; i++) {
+            hbaseConf.getHbaseConf().get("hbase.zookeeper.quorum");
+        }
+        long afterAlloc = allocatedBytes(mxBean) - allocBegin;
+        long afterCpu = mxBean.getCurrentThreadCpuTime() - cpuBegin;
+
+        System.out.println("每次create 平均分配(bytes):" + beforeAlloc / times + " 平均cpu(us):" + beforeCpu / times / 1000);
+        System.out.println("缓存配置 平均分配(bytes):" + afterAlloc / times + " 平均cpu(us):" + afterCpu / times / 1000);
+    }
+
+    private long allocatedBytes(ThreadMXBean mxBean) {
+        if (mxBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) mxBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
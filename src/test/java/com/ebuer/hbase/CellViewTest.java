@@ -0,0 +1,114 @@
+package com.ebuer.hbase;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 测试CellView在底层数组上的解码
+ */
+public class CellViewTest {
+
+    @Test
+    public void testToLongWithOffset() {
+        byte[] array = new byte[11];
+        Bytes.putLong(array, 3, -1234567890123L);
+        Assert.assertEquals(-1234567890123L, CellView.toLong(array, 3, 8));
+    }
+
+    @Test
+    public void testToIntWithOffset() {
+        byte[] array = new byte[6];
+        Bytes.putInt(array, 1, -42);
+        Assert.assertEquals(-42, CellView.toInt(array, 1, 4));
+    }
+
+    @Test
+    public void testToDoubleWithOffset() {
+        byte[] array = new byte[10];
+        Bytes.putDouble(array, 2, 3.25);
+        Assert.assertEquals(3.25, CellView.toDouble(array, 2, 8), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongLongLength() {
+        CellView.toLong(new byte[8], 0, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongIntLength() {
+        CellView.toInt(new byte[8], 0, 8);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongDoubleLength() {
+        CellView.toDouble(new byte[8], 1, 7);
+    }
+
+    @Test
+    public void testAppendUtf8Valid() {
+        String text = "hbase 中文 é 😀";
+        byte[] bytes = Bytes.toBytes(text);
+        Assert.assertEquals(text, decode(bytes));
+        Assert.assertEquals(Bytes.toString(bytes), decode(bytes));
+    }
+
+    @Test
+    public void testAppendUtf8WithOffset() {
+        byte[] bytes = Bytes.add(new byte[]{'x', 'y'}, Bytes.toBytes("中"), new byte[]{'z'});
+        StringBuilder builder = new StringBuilder("a");
+        CellView.appendUtf8(bytes, 2, 3, builder);
+        Assert.assertEquals("a中", builder.toString());
+    }
+
+    @Test
+    public void testAppendUtf8BadContinuation() {
+        // 非法的后续字节不被吞掉
+        Assert.assertEquals("\uFFFDA", decode(bytes(0xC3, 0x41)));
+        Assert.assertEquals("\uFFFDA", decode(bytes(0xE4, 0xB8, 0x41)));
+        Assert.assertEquals("\uFFFDA", decode(bytes(0xF0, 0x9F, 0x98, 0x41)));
+    }
+
+    @Test
+    public void testAppendUtf8Overlong() {
+        Assert.assertEquals("\uFFFD\uFFFD", decode(bytes(0xC0, 0xAF)));
+        Assert.assertEquals("\uFFFD\uFFFD\uFFFD", decode(bytes(0xE0, 0x80, 0xAF)));
+        Assert.assertEquals("\uFFFD\uFFFD\uFFFD\uFFFD", decode(bytes(0xF0, 0x80, 0x80, 0xAF)));
+    }
+
+    @Test
+    public void testAppendUtf8Surrogate() {
+        Assert.assertEquals("\uFFFD\uFFFD\uFFFD", decode(bytes(0xED, 0xA0, 0x80)));
+    }
+
+    @Test
+    public void testAppendUtf8OutOfRange() {
+        Assert.assertEquals("\uFFFD\uFFFD\uFFFD\uFFFD", decode(bytes(0xF4, 0x90, 0x80, 0x80)));
+        Assert.assertEquals("\uFFFD\uFFFD\uFFFD\uFFFD", decode(bytes(0xF5, 0x80, 0x80, 0x80)));
+        Assert.assertEquals("\uFFFDA", decode(bytes(0xFF, 0x41)));
+    }
+
+    @Test
+    public void testAppendUtf8Truncated() {
+        Assert.assertEquals("A\uFFFD", decode(bytes(0x41, 0xE4, 0xB8)));
+        Assert.assertEquals("\uFFFD", decode(bytes(0xF0, 0x9F, 0x98)));
+        // 截断只看length 不读越界的字节
+        Assert.assertEquals("\uFFFD", decode(Bytes.toBytes("中"), 0, 2));
+    }
+
+    private static String decode(byte[] bytes) {
+        return decode(bytes, 0, bytes.length);
+    }
+
+    private static String decode(byte[] bytes, int offset, int length) {
+        return CellView.appendUtf8(bytes, offset, length, new StringBuilder()).toString();
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,110 @@
+package com.ebuer.hbase;
+
+import com.ebuer.conf.HFileBulkLoadConf;
+import com.ebuer.conf.HbaseConf;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 测试HFile离线导入 跑在进程内的mini cluster上 HFile写到本地文件系统
+ */
+public class HFileBulkLoaderTest {
+
+    private static final String FAMILY = "base_info";
+
+    private static HBaseTestingUtility utility;
+
+    private static HbaseClient hbaseClient;
+
+
+    @BeforeClass
+    public static void startCluster() throws Exception {
+        utility = new HBaseTestingUtility();
+        utility.startMiniCluster(1);
+
+        List<Pair<String, String>> keyValues = new ArrayList<Pair<String, String>>(2);
+        keyValues.add(new Pair<String, String>("hbase.zookeeper.quorum", "localhost"));
+        keyValues.add(new Pair<String, String>("hbase.zookeeper.property.clientPort",
+                String.valueOf(utility.getZkCluster().getClientPort())));
+        hbaseClient = new HbaseClient(new HbaseConf(keyValues));
+    }
+
+    @AfterClass
+    public static void stopCluster() throws Exception {
+        hbaseClient.close();
+        utility.shutdownMiniCluster();
+    }
+
+    @Test
+    public void testBulkLoad() {
+        String table = "t_bulk_load";
+        hbaseClient.createTable(table, SplitStrategy.explicit("row_0300", "row_0600"), FAMILY);
+
+        // 很小的缓冲 强制多次排序写出临时文件 归并后每个region一个HFile
+        HFileBulkLoadConf conf = localConf("plain");
+        conf.setMaxBufferBytes(64 * 1024);
+        HFileBulkLoadReport report = hbaseClient.bulkLoad(table, shuffledPuts(1000), conf);
+        System.out.println(report);
+
+        Assert.assertEquals(2000, report.getCells());
+        Assert.assertEquals(3, report.getHfiles());
+        Assert.assertEquals(1000, count(table));
+
+        Result result = hbaseClient.getRow(table, "row_0666");
+        Assert.assertEquals("name_666", Bytes.toString(result.getValue(Bytes.toBytes(FAMILY), Bytes.toBytes("name"))));
+    }
+
+    @Test
+    public void testBulkLoadSaltedTable() {
+        String table = "t_bulk_load_salted";
+        hbaseClient.createTable(table, SplitStrategy.salted(4), FAMILY);
+
+        HFileBulkLoadReport report = hbaseClient.bulkLoad(table, shuffledPuts(200), localConf("salted"));
+        System.out.println(report);
+
+        Assert.assertEquals(200, count(table));
+        Result result = hbaseClient.getRow(table, "row_0042");
+        Assert.assertEquals("row_0042", Bytes.toString(result.getRow()));
+        Assert.assertEquals("name_42", Bytes.toString(result.getValue(Bytes.toBytes(FAMILY), Bytes.toBytes("name"))));
+    }
+
+    private static HFileBulkLoadConf localConf(String name) {
+        File dir = new File(utility.getDataTestDir("bulkload-" + name).toString());
+        return new HFileBulkLoadConf(dir.toURI().toString());
+    }
+
+    private static List<Put> shuffledPuts(int rows) {
+        List<Put> puts = new ArrayList<Put>(rows);
+        for (int i = 0; i < rows; i++) {
+            Put put = new Put(Bytes.toBytes(String.format("row_%04d", i)));
+            put.addColumn(Bytes.toBytes(FAMILY), Bytes.toBytes("name"), Bytes.toBytes("name_" + i));
+            put.addColumn(Bytes.toBytes(FAMILY), Bytes.toBytes("age"), Bytes.toBytes(i % 100));
+            puts.add(put);
+        }
+        Collections.shuffle(puts, new Random(7));
+        return puts;
+    }
+
+    private static long count(String table) {
+        return hbaseClient.scan(table, new Scan(), new RowVisitor() {
+            public boolean visit(Result result) throws IOException {
+                return true;
+            }
+        });
+    }
+}
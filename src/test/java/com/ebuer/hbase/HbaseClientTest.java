@@ -1,18 +1,25 @@
 package com.ebuer.hbase;
 
+import com.ebuer.conf.GetBatchConf;
 import com.ebuer.conf.HbaseConf;
-import org.apache.hadoop.conf.Configuration;
+import com.ebuer.conf.ParallelScanConf;
+import com.ebuer.hbase.mapper.*;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.TableName;
-import org.apache.hadoop.hbase.client.Put;
-import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.regionserver.BloomType;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 测试Hbase的组件
@@ -26,7 +33,7 @@ public class HbaseClientTest {
     private HbaseClient hbaseClient = null;
 
 
-    private Configuration conf = null;
+    private HbaseConf hbaseConf = null;
 
 
     @Before
@@ -38,8 +45,13 @@ public class HbaseClientTest {
         keyValues.add(pair);
         keyValues.add(pair2);
         keyValues.add(pair3);
-        HbaseConf conf = new HbaseConf(keyValues);
-        hbaseClient = new HbaseClient(conf);
+        hbaseConf = new HbaseConf(keyValues);
+        hbaseClient = new HbaseClient(hbaseConf);
+    }
+
+    @After
+    public void destroy() throws IOException {
+        hbaseClient.close();
     }
 
 
@@ -52,6 +64,34 @@ public class HbaseClientTest {
     }
 
 
+    @Test
+    public void testCreateTunedTable() {
+        hbaseClient.createTable("user_tuned", SplitStrategy.hex(8),
+                ColumnFamilySpec.of("base_info").compression(Compression.Algorithm.SNAPPY)
+                        .dataBlockEncoding(DataBlockEncoding.FAST_DIFF).bloomType(BloomType.ROW)
+                        .blockSize(16 * 1024).inMemory(true),
+                ColumnFamilySpec.of("log").ttlSeconds(7 * 24 * 3600).maxVersions(1).blockCacheEnabled(false));
+
+        hbaseClient.modifyColumnFamily("user_tuned", ColumnFamilySpec.of("log").compression(Compression.Algorithm.GZ));
+    }
+
+    @Test
+    public void testCreateSaltedTable() {
+        hbaseClient.createTable("user_salted", SplitStrategy.salted(16), "base_info");
+        for (int i = 0; i < 1000; i++) {
+            Put put = new Put(Bytes.toBytes(String.format("rk_%06d", i)));
+            put.addColumn(Bytes.toBytes("base_info"), Bytes.toBytes("name"), Bytes.toBytes("xuyang_" + i));
+            hbaseClient.putRow("user_salted", put);
+        }
+        long rows = hbaseClient.scan("user_salted", "rk_000100", "rk_000200", new RowVisitor() {
+            public boolean visit(Result result) {
+                System.out.println(Bytes.toString(result.getRow()));
+                return true;
+            }
+        });
+        System.out.println("rows:" + rows);
+    }
+
     @Test
     public void deleteTable() {
 
@@ -86,10 +126,192 @@ public class HbaseClientTest {
     @Test
     public void get(){
         Result row = hbaseClient.getRow("user", "rk_001");
-        List<Cell> cells = row.listCells();
-        for(Cell cell : cells){
-            System.out.println(Bytes.toString(cell.getFamilyArray()));
+        CellView view = new CellView();
+        for (Cell cell : row.rawCells()) {
+            view.reset(cell);
+            System.out.println(view.familyAsString() + ":" + view.qualifierAsString() + "=" + view.valueAsString());
+        }
+    }
+
+    @Test
+    public void scanCells() {
+        final byte[] name = Bytes.toBytes("name");
+        final StringBuilder value = new StringBuilder();
+        long cells = hbaseClient.scanCells("user", new Scan(), new CellVisitor() {
+            public boolean visit(CellView cell) {
+                if (cell.qualifierEquals(name)) {
+                    value.setLength(0);
+                    System.out.println(cell.appendValue(value));
+                }
+                return true;
+            }
+        });
+        System.out.println("cells:" + cells);
+    }
+
+
+    @Test
+    public void entity() {
+        HbaseEntityClient entityClient = new HbaseEntityClient(hbaseClient);
+
+        User user = new User();
+        user.rowKey = "rk_entity_001";
+        user.name = "xuyang";
+        user.age = 28;
+        user.desc = "handsome";
+        entityClient.save(user);
+
+        User loaded = entityClient.load(User.class, "rk_entity_001");
+        System.out.println(loaded.rowKey + " " + loaded.name + " " + loaded.age + " " + loaded.desc);
+    }
+
+    @Table("user")
+    @Family("base_info")
+    public static class User {
+
+        @RowKey
+        private String rowKey;
+
+        @Column
+        private String name;
+
+        @Column
+        private int age;
+
+        @Family("other")
+        @Column("desc")
+        private String desc;
+    }
+
+    @Test
+    public void putRowsByServer() {
+        List<Put> puts = new ArrayList<Put>();
+        for (int i = 0; i < 100000; i++) {
+            Put put = new Put(Bytes.toBytes("rk_routed_" + i));
+            put.addColumn(Bytes.toBytes("base_info"), Bytes.toBytes("name"), Bytes.toBytes("xuyang_" + i));
+            puts.add(put);
+        }
+        RoutedWriteReport report = hbaseClient.putRowsByServer("user", puts);
+        System.out.println(report);
+    }
+
+    @Test
+    public void mutate() {
+        for (int i = 0; i < 10000; i++) {
+            Put put = new Put(Bytes.toBytes("rk_async_" + i));
+            put.addColumn(Bytes.toBytes("base_info"), Bytes.toBytes("name"), Bytes.toBytes("xuyang_" + i));
+            hbaseClient.mutate("user", put);
+        }
+        hbaseClient.flush("user");
+    }
+
+    @Test
+    public void asyncGet() {
+        HbaseAsyncClient asyncClient = new HbaseAsyncClient(hbaseClient);
+        try {
+            List<CompletableFuture<Result>> futures = new ArrayList<CompletableFuture<Result>>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(asyncClient.getRow("user", "rk_async_" + i));
+            }
+            for (CompletableFuture<Result> future : futures) {
+                Result row = future.join();
+                System.out.println(Bytes.toString(row.getRow()));
+            }
+        } finally {
+            asyncClient.close();
+        }
+    }
+
+    @Test
+    public void coalescedGet() throws InterruptedException {
+        hbaseClient.setGetBatchConf(new GetBatchConf(1000, 32));
+
+        Thread[] threads = new Thread[64];
+        for (int i = 0; i < threads.length; i++) {
+            final String rowKey = "rk_async_" + i;
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < 100; j++) {
+                        hbaseClient.getRow("user", rowKey);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
         }
+
+        GetCoalescer coalescer = hbaseClient.getCoalescer();
+        System.out.println("批次数:" + coalescer.getBatchCount() + " get数:" + coalescer.getGetCount()
+                + " 填充率:" + coalescer.getFillRatio());
+    }
+
+    @Test
+    public void scan() {
+        long count = hbaseClient.scan("user", "rk_", "rk_z", new RowVisitor() {
+            public boolean visit(Result result) {
+                System.out.println(Bytes.toString(result.getRow()));
+                return true;
+            }
+        });
+        System.out.println("扫描行数:" + count);
+
+        HbaseScanner scanner = hbaseClient.openScanner("user", new Scan());
+        try {
+            for (Result result : scanner) {
+                System.out.println(Bytes.toString(result.getRow()));
+            }
+        } finally {
+            scanner.close();
+        }
+    }
+
+    @Test
+    public void parallelScan() {
+        long count = hbaseClient.parallelScan("user", new Scan(), new ParallelScanConf(4, true), new RowVisitor() {
+            public boolean visit(Result result) {
+                System.out.println(Bytes.toString(result.getRow()));
+                return true;
+            }
+        });
+        System.out.println("扫描行数:" + count);
+    }
+
+    /**
+     * getRow延迟对比：每次新建Connection(改造前) vs 共享Connection(改造后)
+     */
+    @Test
+    public void benchGetRow() throws IOException {
+        int warmUp = 20;
+        int times = 200;
+        Get get = new Get(Bytes.toBytes("rk_001"));
+
+        for (int i = 0; i < warmUp; i++) {
+            hbaseClient.getRow("user", get);
+        }
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < times; i++) {
+            Connection connection = ConnectionFactory.createConnection(hbaseConf.getHbaseConf());
+            Table table = connection.getTable(TableName.valueOf("user"));
+            try {
+                table.get(get);
+            } finally {
+                table.close();
+                connection.close();
+            }
+        }
+        long before = System.nanoTime() - begin;
+
+        begin = System.nanoTime();
+        for (int i = 0; i < times; i++) {
+            hbaseClient.getRow("user", get);
+        }
+        long after = System.nanoTime() - begin;
+
+        System.out.println("getRow 每次新建Connection 平均耗时(us):" + before / times / 1000);
+        System.out.println("getRow 共享Connection 平均耗时(us):" + after / times / 1000);
     }
 
 }
@@ -1,7 +1,10 @@
 package com.ebuer.hbase;
 
+import com.ebuer.conf.PhoenixBulkLoadConf;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,6 +28,35 @@ public class PhoenixClientTest {
 
         String result = client.execQuerySql(pheonixSQL);
         System.out.println(result);
+        client.close();
+    }
+
+    @Test
+    public void testStreamSelect() throws IOException {
+        PhoenixClient client = new PhoenixClient();
+        client.setHost("dev01");
+        client.setPort(2181);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = client.execQuery(" select * from \"p_table_01\"", out);
+        System.out.println("行数:" + rows + " 字节数:" + out.size());
+        client.close();
+    }
+
+    @Test
+    public void testPool() {
+        PhoenixClient client = new PhoenixClient();
+        client.setHost("dev01");
+        client.setPort(2181);
+
+        for (int i = 0; i < 100; i++) {
+            client.execQuerySql(" select * from \"p_table_01\" limit 1");
+        }
+
+        PhoenixConnectionPool pool = client.getPool();
+        System.out.println("借用次数:" + pool.getBorrowCount() + " 新建连接数:" + pool.getCreatedCount()
+                + " 平均等待(us):" + pool.getAvgBorrowWaitMicros());
+        client.close();
     }
 
 
@@ -71,7 +103,91 @@ public class PhoenixClientTest {
         }
 
 
-        client.execBatchSql(list);
+        BatchReport report = client.execBatchSql(list);
+        System.out.println(report);
+    }
+
+    @Test
+    public void testUpsertPrepared() {
+        PhoenixClient client = new PhoenixClient();
+        client.setHost("dev01");
+        client.setPort(2181);
+
+        List<Object[]> params = new ArrayList<Object[]>();
+        for (int i = 1; i < 100000; i++) {
+            params.add(new Object[]{"rk_" + i, "xuqiang_" + i, "man"});
+        }
+
+        BatchReport report = client.executeBatch(" upsert into \"p_table_01\" values(?,?,?)", params);
+        System.out.println(report);
+        client.close();
+    }
+
+    @Test
+    public void testBulkLoad() {
+        PhoenixClient client = new PhoenixClient();
+        client.setHost("dev01");
+        client.setPort(2181);
+
+        List<Object[]> params = new ArrayList<Object[]>();
+        for (int i = 1; i < 1000000; i++) {
+            params.add(new Object[]{"rk_" + i, "xuqiang_" + i, "man"});
+        }
+
+        PhoenixBulkLoader loader = new PhoenixBulkLoader(client,
+                new PhoenixBulkLoadConf(8, PhoenixBulkLoadConf.PartitionMode.KEY_HASH));
+        loader.setListener(new BatchReport.BatchListener() {
+            public void onBatch(BatchReport.BatchResult batch) {
+                System.out.println("worker:" + batch.getWorker() + " batch:" + batch.getIndex()
+                        + " rows:" + batch.getRows() + " elapsed(ms):" + batch.getElapsedMillis());
+            }
+        });
+        BatchReport report = loader.load(" upsert into \"p_table_01\" values(?,?,?)", params);
+        System.out.println(report);
+        client.close();
+    }
+
+    @Test
+    public void testTypedQuery() {
+        PhoenixClient client = new PhoenixClient();
+        client.setHost("dev01");
+        client.setPort(2181);
+
+        List<User> users = client.query(" select * from \"p_table_01\" where id > ? limit ?", User.class, "rk_1", 10);
+        for (User user : users) {
+            System.out.println(user.getId() + " " + user.getName() + " " + user.getSex());
+        }
+        client.close();
+    }
+
+    public static class User {
+        private String id;
+        private String name;
+        private String sex;
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getSex() {
+            return sex;
+        }
+
+        public void setSex(String sex) {
+            this.sex = sex;
+        }
     }
 
     @Test
@@ -0,0 +1,127 @@
+package com.ebuer.hbase;
+
+import com.ebuer.conf.RowCacheConf;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Consistency;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 测试行缓存
+ */
+public class RowCacheTest {
+
+    private static final byte[] FAMILY = Bytes.toBytes("base_info");
+
+    private static final byte[] QUALIFIER = Bytes.toBytes("name");
+
+
+    @Test
+    public void testHitAndInvalidate() {
+        RowCache cache = new RowCache(new RowCacheConf());
+
+        Get get = new Get(Bytes.toBytes("rk_001"));
+        RowCache.CacheKey key = cache.keyOf("user", get);
+        Assert.assertNull(cache.get(key));
+
+        cache.put(key, result("rk_001", "xuyang"), cache.epoch(key));
+        Result cached = cache.get(cache.keyOf("user", new Get(Bytes.toBytes("rk_001"))));
+        Assert.assertEquals("xuyang", Bytes.toString(cached.getValue(FAMILY, QUALIFIER)));
+
+        cache.invalidate("user", Bytes.toBytes("rk_001"));
+        Assert.assertNull(cache.get(key));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(2, cache.getMissCount());
+        Assert.assertEquals(1, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void testStaleLoadDropped() {
+        RowCache cache = new RowCache(new RowCacheConf());
+        RowCache.CacheKey key = cache.keyOf("user", new Get(Bytes.toBytes("rk_001")));
+
+        long epoch = cache.epoch(key);
+        cache.invalidate("user", Bytes.toBytes("rk_001"));
+        cache.put(key, result("rk_001", "old"), epoch);
+
+        Assert.assertNull(cache.get(key));
+    }
+
+    @Test
+    public void testOtherRowInvalidationKeepsLoad() {
+        RowCache cache = new RowCache(new RowCacheConf());
+        RowCache.CacheKey key = cache.keyOf("user", new Get(Bytes.toBytes("rk_001")));
+
+        long epoch = cache.epoch(key);
+        cache.invalidate("user", Bytes.toBytes("rk_002"));
+        cache.put(key, result("rk_001", "xuyang"), epoch);
+
+        Assert.assertNotNull(cache.get(key));
+    }
+
+    @Test
+    public void testUncacheableGet() {
+        RowCache cache = new RowCache(new RowCacheConf());
+
+        Get limited = new Get(Bytes.toBytes("rk_001"));
+        limited.setMaxResultsPerColumnFamily(1);
+        Assert.assertNull(cache.keyOf("user", limited));
+
+        Get timeline = new Get(Bytes.toBytes("rk_001"));
+        timeline.setConsistency(Consistency.TIMELINE);
+        Assert.assertNull(cache.keyOf("user", timeline));
+    }
+
+    @Test
+    public void testDifferentColumnsDifferentKeys() {
+        RowCache cache = new RowCache(new RowCacheConf());
+
+        Get get = new Get(Bytes.toBytes("rk_001"));
+        get.addColumn(FAMILY, QUALIFIER);
+        RowCache.CacheKey key = cache.keyOf("user", get);
+        cache.put(key, result("rk_001", "xuyang"), cache.epoch(key));
+
+        Assert.assertNull(cache.get(cache.keyOf("user", new Get(Bytes.toBytes("rk_001")))));
+    }
+
+    @Test
+    public void testLruEviction() {
+        RowCache cache = new RowCache(new RowCacheConf(1024, 60000));
+
+        for (int i = 0; i < 100; i++) {
+            String row = "rk_" + i;
+            RowCache.CacheKey key = cache.keyOf("user", new Get(Bytes.toBytes(row)));
+            cache.put(key, result(row, "xuyang_" + i), cache.epoch(key));
+        }
+
+        Assert.assertTrue(cache.getCurrentBytes() <= 1024);
+        Assert.assertTrue(cache.getEvictionCount() > 0);
+        Assert.assertNotNull(cache.get(cache.keyOf("user", new Get(Bytes.toBytes("rk_99")))));
+        Assert.assertNull(cache.get(cache.keyOf("user", new Get(Bytes.toBytes("rk_0")))));
+    }
+
+    @Test
+    public void testTableTtl() throws InterruptedException {
+        RowCacheConf conf = new RowCacheConf();
+        conf.getTableTtlMillis().put("user", 10L);
+        conf.getTableTtlMillis().put("no_cache", 0L);
+        RowCache cache = new RowCache(conf);
+
+        Assert.assertNull(cache.keyOf("no_cache", new Get(Bytes.toBytes("rk_001"))));
+
+        RowCache.CacheKey key = cache.keyOf("user", new Get(Bytes.toBytes("rk_001")));
+        cache.put(key, result("rk_001", "xuyang"), cache.epoch(key));
+        Thread.sleep(20);
+        Assert.assertNull(cache.get(key));
+        Assert.assertEquals(1, cache.getExpiredCount());
+    }
+
+    private Result result(String row, String value) {
+        Cell cell = new KeyValue(Bytes.toBytes(row), FAMILY, QUALIFIER, Bytes.toBytes(value));
+        return Result.create(new Cell[]{cell});
+    }
+}
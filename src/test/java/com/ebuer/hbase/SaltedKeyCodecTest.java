@@ -0,0 +1,82 @@
+package com.ebuer.hbase;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.Tag;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 测试rowkey加盐和预分区
+ */
+public class SaltedKeyCodecTest {
+
+    private static final byte[] FAMILY = Bytes.toBytes("base_info");
+
+    private static final byte[] QUALIFIER = Bytes.toBytes("name");
+
+
+    @Test
+    public void testSaltPutAndUnsaltResult() throws IOException {
+        SaltedKeyCodec codec = new SaltedKeyCodec(16);
+        byte[] row = Bytes.toBytes("rk_001");
+
+        Put put = new Put(row);
+        put.addColumn(FAMILY, QUALIFIER, Bytes.toBytes("xuyang"));
+        Put salted = codec.salt(put);
+        Assert.assertEquals(codec.bucket(row), salted.getRow()[0]);
+        Assert.assertArrayEquals(row, codec.unsalt(salted.getRow()));
+
+        Cell cell = salted.get(FAMILY, QUALIFIER).get(0);
+        Result result = codec.unsalt(Result.create(new Cell[]{cell}));
+        Assert.assertArrayEquals(row, result.getRow());
+        Assert.assertEquals("xuyang", Bytes.toString(result.getValue(FAMILY, QUALIFIER)));
+    }
+
+    @Test
+    public void testSaltKeepsTags() throws IOException {
+        SaltedKeyCodec codec = new SaltedKeyCodec(16);
+        byte[] row = Bytes.toBytes("rk_001");
+
+        Put put = new Put(row);
+        put.add(new KeyValue(row, FAMILY, QUALIFIER, HConstants.LATEST_TIMESTAMP, Bytes.toBytes("xuyang"),
+                new Tag[]{new Tag((byte) 100, "tag_value")}));
+        Cell cell = codec.salt(put).get(FAMILY, QUALIFIER).get(0);
+
+        List<Tag> tags = Tag.asList(cell.getTagsArray(), cell.getTagsOffset(), cell.getTagsLength());
+        Assert.assertEquals(1, tags.size());
+        Assert.assertEquals("tag_value", Bytes.toString(tags.get(0).getValue()));
+    }
+
+    @Test
+    public void testBucketScans() throws IOException {
+        SaltedKeyCodec codec = new SaltedKeyCodec(4);
+
+        List<Scan> scans = codec.bucketScans(new Scan());
+        Assert.assertEquals(4, scans.size());
+        Assert.assertArrayEquals(new byte[]{0}, scans.get(0).getStartRow());
+        Assert.assertArrayEquals(new byte[]{1}, scans.get(0).getStopRow());
+        Assert.assertArrayEquals(new byte[0], scans.get(3).getStopRow());
+
+        scans = codec.bucketScans(new Scan(Bytes.toBytes("a"), Bytes.toBytes("b")));
+        Assert.assertArrayEquals(new byte[]{2, 'a'}, scans.get(2).getStartRow());
+        Assert.assertArrayEquals(new byte[]{2, 'b'}, scans.get(2).getStopRow());
+    }
+
+    @Test
+    public void testSplitStrategy() {
+        Assert.assertEquals(15, SplitStrategy.salted(16).getSplitKeys().length);
+        Assert.assertEquals("80000000", Bytes.toString(SplitStrategy.hex(2).getSplitKeys()[0]));
+        Assert.assertArrayEquals(new byte[]{(byte) 0x80, 0, 0, 0}, SplitStrategy.uniform(2).getSplitKeys()[0]);
+        Assert.assertEquals(2, SplitStrategy.explicit("b", "a", "b").getSplitKeys().length);
+        Assert.assertEquals(0, SplitStrategy.hex(1).getSplitKeys().length);
+    }
+}
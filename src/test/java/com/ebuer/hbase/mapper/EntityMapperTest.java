@@ -0,0 +1,123 @@
+package com.ebuer.hbase.mapper;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 测试实体和Put/Result的互相转换以及值的编解码
+ */
+public class EntityMapperTest {
+
+    @Test
+    public void testRoundTrip() {
+        User user = new User();
+        user.id = "rk_001";
+        user.name = "xuyang";
+        user.age = 18;
+        user.score = 99.5;
+        user.ratio = 0.25f;
+        user.vip = true;
+        user.balance = new BigDecimal("12.34");
+        user.birthday = new Date(1484000000000L);
+        user.avatar = new byte[]{1, 2, 3};
+
+        EntityMapper<User> mapper = EntityMapper.of(User.class);
+        Assert.assertEquals("user", mapper.getTableName());
+
+        User copy = mapper.fromResult(toResult(mapper.toPut(user)));
+        Assert.assertEquals("rk_001", copy.id);
+        Assert.assertEquals("xuyang", copy.name);
+        Assert.assertEquals(18, copy.age);
+        Assert.assertEquals(99.5, copy.score, 0);
+        Assert.assertEquals(0.25f, copy.ratio, 0);
+        Assert.assertTrue(copy.vip);
+        Assert.assertEquals(new BigDecimal("12.34"), copy.balance);
+        Assert.assertEquals(user.birthday, copy.birthday);
+        Assert.assertArrayEquals(new byte[]{1, 2, 3}, copy.avatar);
+        Assert.assertNull(copy.remark);
+    }
+
+    @Test
+    public void testDecodeWithOffset() {
+        byte[] array = new byte[12];
+        Bytes.putDouble(array, 2, 3.5);
+        Assert.assertEquals(3.5, (Double) ValueCodec.DOUBLE.decode(array, 2, 8), 0);
+
+        Bytes.putInt(array, 6, Float.floatToIntBits(1.5f));
+        Assert.assertEquals(1.5f, (Float) ValueCodec.FLOAT.decode(array, 6, 4), 0);
+
+        array[11] = 1;
+        Assert.assertEquals(Boolean.TRUE, ValueCodec.BOOLEAN.decode(array, 11, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyBoolean() {
+        ValueCodec.BOOLEAN.decode(new byte[]{1, 1}, 1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongDoubleLength() {
+        ValueCodec.DOUBLE.decode(new byte[8], 0, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongIntLength() {
+        ValueCodec.INT.decode(new byte[8], 0, 8);
+    }
+
+    private static Result toResult(Put put) {
+        List<Cell> cells = new ArrayList<Cell>();
+        for (List<Cell> family : put.getFamilyCellMap().values()) {
+            cells.addAll(family);
+        }
+        Collections.sort(cells, KeyValue.COMPARATOR);
+        return Result.create(cells);
+    }
+
+    @Table("user")
+    @Family("base_info")
+    static class User {
+
+        @RowKey
+        private String id;
+
+        @Column
+        private String name;
+
+        @Column
+        private int age;
+
+        @Column
+        private double score;
+
+        @Column
+        private float ratio;
+
+        @Column
+        private boolean vip;
+
+        @Column
+        private BigDecimal balance;
+
+        @Column
+        private Date birthday;
+
+        @Column
+        @Family("ext_info")
+        private byte[] avatar;
+
+        @Column
+        private String remark;
+    }
+}
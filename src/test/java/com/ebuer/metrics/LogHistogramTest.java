@@ -0,0 +1,55 @@
+package com.ebuer.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 测试对数分桶直方图的分位数精度
+ */
+public class LogHistogramTest {
+
+    @Test
+    public void testPercentile() {
+        LogHistogram histogram = new LogHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(1000000, histogram.getMax());
+        Assert.assertEquals(500500.0, histogram.getMean(), 0.001);
+
+        // 每个2的幂区间分32个桶 相对误差不超过1/32
+        assertNear(500000, histogram.getPercentile(50));
+        assertNear(990000, histogram.getPercentile(99));
+        Assert.assertEquals(1000000, histogram.getPercentile(100));
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void testIndexBound() {
+        for (long value : new long[]{0, 1, 31, 32, 33, 1023, 1024, 123456789, Long.MAX_VALUE}) {
+            Assert.assertTrue(LogHistogram.upperBound(LogHistogram.index(value)) >= value);
+        }
+    }
+
+    @Test
+    public void testRegistry() {
+        DefaultMetricsRegistry registry = new DefaultMetricsRegistry(null);
+        registry.record("t_user", "putRows", 2000000, 100, true);
+        registry.record("t_user", "putRows", 4000000, 50, false);
+
+        OperationStats stats = registry.getStats("t_user", "putRows");
+        Assert.assertEquals(2, stats.getCount());
+        Assert.assertEquals(1, stats.getErrorCount());
+        Assert.assertEquals(100, stats.getMaxBatchSize());
+        System.out.println(stats);
+    }
+
+    private static void assertNear(long expected, long actual) {
+        Assert.assertTrue(actual + " !~ " + expected, Math.abs(actual - expected) <= expected / 32 + 1);
+    }
+}
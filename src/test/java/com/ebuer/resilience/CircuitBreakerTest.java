@@ -0,0 +1,62 @@
+package com.ebuer.resilience;
+
+import com.ebuer.conf.CircuitBreakerConf;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 测试熔断器的状态切换
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void testOpenHalfOpenClose() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker("t_user", new CircuitBreakerConf(3, 50));
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.tryAcquire());
+        Assert.assertEquals(1, breaker.getRejectedCount());
+
+        // 半开只放一个试探请求 试探失败重新打开
+        Thread.sleep(60);
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertFalse(breaker.tryAcquire());
+        breaker.onFailure();
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertEquals(2, breaker.getOpenedCount());
+
+        // 试探成功关闭
+        Thread.sleep(60);
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assert.assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testIgnoredReleasesHalfOpenProbe() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker("t_user", new CircuitBreakerConf(1, 50));
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // 试探请求没有完成rpc 不关闭熔断 但归还试探名额
+        Thread.sleep(60);
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertFalse(breaker.tryAcquire());
+        breaker.onIgnored();
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        // CLOSED时不改变任何计数
+        breaker.onIgnored();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assert.assertEquals(0, breaker.getConsecutiveFailures());
+    }
+}
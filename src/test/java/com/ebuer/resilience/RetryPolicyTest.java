@@ -0,0 +1,103 @@
+package com.ebuer.resilience;
+
+import com.ebuer.conf.RetryConf;
+import org.apache.hadoop.hbase.NotServingRegionException;
+import org.apache.hadoop.hbase.TableNotFoundException;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.regionserver.NoSuchColumnFamilyException;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 测试退避时间、重试预算和可重试异常的判断
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void testBackoff() {
+        RetryConf conf = new RetryConf(5);
+        conf.setInitialBackoffMillis(100);
+        conf.setMaxBackoffMillis(1000);
+        conf.setJitter(0.5);
+        RetryPolicy policy = new RetryPolicy(conf);
+
+        for (int i = 0; i < 100; i++) {
+            long first = policy.backoffMillis(1);
+            Assert.assertTrue(first >= 50 && first <= 100);
+            long third = policy.backoffMillis(3);
+            Assert.assertTrue(third >= 200 && third <= 400);
+            long capped = policy.backoffMillis(10);
+            Assert.assertTrue(capped >= 500 && capped <= 1000);
+        }
+    }
+
+    @Test
+    public void testBudget() {
+        RetryConf conf = new RetryConf(3);
+        conf.setBudgetMaxRetries(2);
+        conf.setBudgetRatio(0.5);
+        RetryPolicy policy = new RetryPolicy(conf);
+
+        Assert.assertFalse(policy.allowRetry(3));
+        Assert.assertTrue(policy.allowRetry(1));
+        Assert.assertTrue(policy.allowRetry(2));
+        // 预算用完
+        Assert.assertFalse(policy.allowRetry(1));
+
+        // 两次调用攒够一次重试
+        policy.onCall();
+        policy.onCall();
+        Assert.assertTrue(policy.allowRetry(1));
+        Assert.assertFalse(policy.allowRetry(1));
+    }
+
+    @Test
+    public void testRetryable() {
+        Assert.assertTrue(RetryPolicy.isRetryable(new SocketTimeoutException()));
+        Assert.assertTrue(RetryPolicy.isRetryable(new SQLException("region moved", new IOException("region moved"))));
+        Assert.assertFalse(RetryPolicy.isRetryable(new TableNotFoundException("t_user")));
+        Assert.assertFalse(RetryPolicy.isRetryable(new SQLException("syntax error")));
+        Assert.assertFalse(RetryPolicy.isRetryable(new IllegalArgumentException()));
+    }
+
+    @Test
+    public void testRetriesExhaustedWithDetails() {
+        RetriesExhaustedWithDetailsException regionMoved = retriesExhausted(
+                new NotServingRegionException("region moved"), new NotServingRegionException("region moved"));
+        Assert.assertTrue(RetryPolicy.isRetryable(regionMoved));
+        Assert.assertTrue(RetryPolicy.mayHaveClusterIssues(regionMoved));
+
+        // 列族不存在 重试也不会成功 集群本身是通的
+        RetriesExhaustedWithDetailsException noFamily = retriesExhausted(
+                new NoSuchColumnFamilyException("no_family"), new NoSuchColumnFamilyException("no_family"));
+        Assert.assertFalse(RetryPolicy.isRetryable(noFamily));
+        Assert.assertFalse(RetryPolicy.mayHaveClusterIssues(noFamily));
+        Assert.assertFalse(RetryPolicy.isRetryable(new IOException(noFamily)));
+
+        // 混合的失败不整体重试 但仍算集群故障
+        RetriesExhaustedWithDetailsException mixed = retriesExhausted(
+                new NoSuchColumnFamilyException("no_family"), new NotServingRegionException("region moved"));
+        Assert.assertFalse(RetryPolicy.isRetryable(mixed));
+        Assert.assertTrue(RetryPolicy.mayHaveClusterIssues(mixed));
+    }
+
+    private static RetriesExhaustedWithDetailsException retriesExhausted(Throwable... causes) {
+        List<Row> actions = new ArrayList<Row>();
+        List<String> servers = new ArrayList<String>();
+        for (int i = 0; i < causes.length; i++) {
+            actions.add(new Put(Bytes.toBytes("rk_" + i)));
+            servers.add("rs" + i + ":16020");
+        }
+        return new RetriesExhaustedWithDetailsException(Arrays.asList(causes), actions, servers);
+    }
+}
@@ -0,0 +1,62 @@
+package com.ebuer.trace;
+
+import com.ebuer.conf.TraceConf;
+import com.ebuer.metrics.DefaultMetricsRegistry;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 测试分阶段耗时、listener回调和慢日志
+ */
+public class OperationTracerTest {
+
+    @Test
+    public void testPhasesAndListener() throws InterruptedException {
+        DefaultMetricsRegistry registry = new DefaultMetricsRegistry(null);
+        final List<OperationContext> ended = new ArrayList<OperationContext>();
+
+        OperationTracer tracer = new OperationTracer();
+        tracer.setMetricsRegistry(registry);
+        tracer.setTraceConf(new TraceConf(1));
+        tracer.addListener(new OperationListener() {
+            public void onStart(OperationContext context) {
+                context.setAttribute("span", "span-" + context.getOperation());
+            }
+
+            public void onEnd(OperationContext context) {
+                ended.add(context);
+            }
+        });
+        // 抛异常的listener不影响其他listener和操作本身
+        tracer.addListener(new OperationListener() {
+            public void onStart(OperationContext context) {
+                throw new IllegalStateException("broken listener");
+            }
+
+            public void onEnd(OperationContext context) {
+            }
+        });
+
+        OperationContext context = tracer.begin("t_user", "getRow", Bytes.toBytes("rk_\u0001"), 1);
+        Thread.sleep(2);
+        context.markConnected();
+        Thread.sleep(2);
+        context.markExecuted();
+        Thread.sleep(2);
+        tracer.end(context, true);
+
+        Assert.assertEquals(1, ended.size());
+        Assert.assertEquals("span-getRow", context.getAttribute("span"));
+        Assert.assertEquals("rk_\\x01", context.getTarget());
+        Assert.assertTrue(context.getConnectNanos() > 0);
+        Assert.assertTrue(context.getExecuteNanos() > 0);
+        Assert.assertTrue(context.getMaterializeNanos() > 0);
+        Assert.assertEquals(context.getElapsedNanos(),
+                context.getConnectNanos() + context.getExecuteNanos() + context.getMaterializeNanos());
+        Assert.assertEquals(1, registry.getStats("t_user", "getRow").getCount());
+    }
+}